@@ -0,0 +1,272 @@
+package benchmark;
+
+import benchmark.Workloads.Maze;
+import graph.MazeGraph.MazeVertex;
+import graph.IndexedMinPQueue;
+import graph.IntIntPacMap;
+import graph.IntMinPQueue;
+import graph.MazePathfinder;
+import graph.MinPQueue;
+import graph.ObjIntPacMap;
+import graph.PacMap;
+import graph.Pathfinding;
+import graph.ProbingPacMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Runs microbenchmarks of the game's hottest data structures and algorithms: shortest-path
+ * searches on generated mazes of several sizes, `MinPQueue` and its indexed d-ary replacements
+ * (compared with `java.util.PriorityQueue`), and `ProbingPacMap` and its primitive-specialized
+ * replacements (compared with `java.util.HashMap`).
+ * <p>
+ * Usage: java benchmark.BenchmarkApp [filter=<name substring>] [warmup=<ms>] [time=<ms>]
+ * [iterations=<##>]
+ */
+public class BenchmarkApp {
+
+    /**
+     * Maze sizes (in path columns and rows) to run pathfinding benchmarks on.
+     */
+    private static final int[][] MAZE_SIZES = {{10, 10}, {30, 30}, {60, 60}};
+
+    /**
+     * Numbers of elements to run priority queue and map benchmarks with.
+     */
+    private static final int[] COLLECTION_SIZES = {100, 10_000};
+
+    /**
+     * The seed used to generate all benchmark inputs.
+     */
+    private static final long SEED = 2110;
+
+    public static void main(String[] args) {
+        // Default configuration parameters
+        String filter = "";
+        long warmupMillis = 2000;
+        long iterationMillis = 1000;
+        int iterations = 5;
+
+        for (String arg : args) {
+            if (arg.startsWith("filter=")) {
+                filter = arg.substring(7);
+            } else if (arg.startsWith("warmup=")) {
+                warmupMillis = Long.parseLong(arg.substring(7));
+            } else if (arg.startsWith("time=")) {
+                iterationMillis = Long.parseLong(arg.substring(5));
+            } else if (arg.startsWith("iterations=")) {
+                iterations = Integer.parseInt(arg.substring(11));
+                if (iterations < 1) {
+                    throw new IllegalArgumentException("Must run at least 1 iteration.");
+                }
+            } else {
+                throw new IllegalArgumentException("Unable to interpret argument: " + arg +
+                        "\n Usage: java BenchmarkApp [filter=<name>] [warmup=<ms>] [time=<ms>]"
+                        + " [iterations=<##>]");
+            }
+        }
+
+        Harness harness = new Harness(warmupMillis, iterationMillis, iterations, filter);
+        pathfindingBenchmarks(harness);
+        queueBenchmarks(harness);
+        mapBenchmarks(harness);
+    }
+
+    /**
+     * Benchmark single-pair shortest path queries on mazes of each size in `MAZE_SIZES`.
+     */
+    static void pathfindingBenchmarks(Harness harness) {
+        for (int[] size : MAZE_SIZES) {
+            Maze maze = Workloads.maze(size[0], size[1], SEED, 1024);
+            String suffix = "[" + size[0] + "x" + size[1] + "]";
+
+            int[] q = {0};
+            harness.run("Pathfinding.shortestNonBacktrackingPath" + suffix, () -> {
+                int i = q[0]++ % maze.numQueries();
+                return Pathfinding.shortestNonBacktrackingPath(maze.srcs()[i], maze.dsts()[i],
+                        maze.prevs()[i]);
+            });
+
+            harness.run("Pathfinding.shortestNonBacktrackingPath(A*)" + suffix, () -> {
+                int i = q[0]++ % maze.numQueries();
+                MazeVertex dst = maze.dsts()[i];
+                return Pathfinding.shortestNonBacktrackingPath(maze.srcs()[i], dst,
+                        maze.prevs()[i], v -> maze.graph().distanceLowerBound(v, dst));
+            });
+
+            harness.run("MazePathfinder.search" + suffix, () -> {
+                int i = q[0]++ % maze.numQueries();
+                MazePathfinder pf = MazePathfinder.forGraph(maze.graph());
+                pf.search(maze.srcs()[i], maze.dsts()[i], maze.prevs()[i]);
+                return pf.pathLength();
+            });
+        }
+    }
+
+    /**
+     * Benchmark the access pattern of Dijkstra's algorithm on priority queues of each size in
+     * `COLLECTION_SIZES`: add every element, lower the priority of every other element, then remove
+     * them all.  `PriorityQueue` cannot change priorities, so it is given a duplicate entry per
+     * lowered priority and skips stale entries on removal, as is usual.
+     */
+    static void queueBenchmarks(Harness harness) {
+        for (int n : COLLECTION_SIZES) {
+            Integer[] keys = Workloads.keys(n, SEED);
+            double[] priorities = Workloads.priorities(n, SEED);
+            String suffix = "[" + n + "]";
+
+            harness.run("MinPQueue.dijkstraPattern" + suffix, () -> {
+                MinPQueue<Integer> queue = new MinPQueue<>();
+                for (int i = 0; i < n; i++) {
+                    queue.addOrUpdate(keys[i], priorities[i]);
+                }
+                for (int i = 0; i < n; i += 2) {
+                    queue.addOrUpdate(keys[i], priorities[i] / 2);
+                }
+                int sum = 0;
+                while (!queue.isEmpty()) {
+                    sum += queue.remove();
+                }
+                return sum;
+            });
+
+            harness.run("IndexedMinPQueue.dijkstraPattern" + suffix, () -> {
+                IndexedMinPQueue<Integer> queue = new IndexedMinPQueue<>();
+                for (int i = 0; i < n; i++) {
+                    queue.addOrUpdate(keys[i], priorities[i]);
+                }
+                for (int i = 0; i < n; i += 2) {
+                    queue.addOrUpdate(keys[i], priorities[i] / 2);
+                }
+                int sum = 0;
+                while (!queue.isEmpty()) {
+                    sum += queue.remove();
+                }
+                return sum;
+            });
+
+            IntMinPQueue intQueue = new IntMinPQueue(n);
+            harness.run("IntMinPQueue.dijkstraPattern" + suffix, () -> {
+                for (int i = 0; i < n; i++) {
+                    intQueue.addOrUpdate(i, priorities[i]);
+                }
+                for (int i = 0; i < n; i += 2) {
+                    intQueue.addOrUpdate(i, priorities[i] / 2);
+                }
+                int sum = 0;
+                while (!intQueue.isEmpty()) {
+                    sum += intQueue.remove();
+                }
+                return sum;
+            });
+
+            harness.run("PriorityQueue.dijkstraPattern" + suffix, () -> {
+                PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+                Map<Integer, Double> best = new HashMap<>();
+                for (int i = 0; i < n; i++) {
+                    queue.add(new QueueEntry(keys[i], priorities[i]));
+                    best.put(keys[i], priorities[i]);
+                }
+                for (int i = 0; i < n; i += 2) {
+                    queue.add(new QueueEntry(keys[i], priorities[i] / 2));
+                    best.put(keys[i], priorities[i] / 2);
+                }
+                int sum = 0;
+                while (!queue.isEmpty()) {
+                    QueueEntry e = queue.remove();
+                    if (best.get(e.key()) == e.priority()) {
+                        sum += e.key();
+                    }
+                }
+                return sum;
+            });
+        }
+    }
+
+    /**
+     * An element of a `PriorityQueue` in `queueBenchmarks()`, ordered by priority.
+     */
+    private record QueueEntry(Integer key, double priority) implements Comparable<QueueEntry> {
+
+        @Override
+        public int compareTo(QueueEntry other) {
+            return Double.compare(priority, other.priority);
+        }
+    }
+
+    /**
+     * Benchmark maps of each size in `COLLECTION_SIZES`: put every key, look each one up, then
+     * remove them all.
+     */
+    static void mapBenchmarks(Harness harness) {
+        for (int n : COLLECTION_SIZES) {
+            Integer[] keys = Workloads.keys(n, SEED);
+            String suffix = "[" + n + "]";
+
+            harness.run("ProbingPacMap.putGetRemove" + suffix, () -> {
+                PacMap<Integer, Integer> map = new ProbingPacMap<>();
+                for (int i = 0; i < n; i++) {
+                    map.put(keys[i], i);
+                }
+                int sum = 0;
+                for (int i = 0; i < n; i++) {
+                    if (map.containsKey(keys[i])) {
+                        sum += map.get(keys[i]);
+                    }
+                }
+                for (int i = 0; i < n; i++) {
+                    sum += map.remove(keys[i]);
+                }
+                return sum;
+            });
+
+            harness.run("ObjIntPacMap.putGetRemove" + suffix, () -> {
+                ObjIntPacMap<Integer> map = new ObjIntPacMap<>();
+                for (int i = 0; i < n; i++) {
+                    map.put(keys[i], i);
+                }
+                int sum = 0;
+                for (int i = 0; i < n; i++) {
+                    sum += map.getOrDefault(keys[i], 0);
+                }
+                for (int i = 0; i < n; i++) {
+                    sum += map.removeOrDefault(keys[i], 0);
+                }
+                return sum;
+            });
+
+            harness.run("IntIntPacMap.putGetRemove" + suffix, () -> {
+                IntIntPacMap map = new IntIntPacMap();
+                for (int i = 0; i < n; i++) {
+                    map.put(keys[i].intValue(), i);
+                }
+                int sum = 0;
+                for (int i = 0; i < n; i++) {
+                    sum += map.getOrDefault(keys[i].intValue(), 0);
+                }
+                for (int i = 0; i < n; i++) {
+                    sum += map.removeOrDefault(keys[i].intValue(), 0);
+                }
+                return sum;
+            });
+
+            harness.run("HashMap.putGetRemove" + suffix, () -> {
+                Map<Integer, Integer> map = new HashMap<>();
+                for (int i = 0; i < n; i++) {
+                    map.put(keys[i], i);
+                }
+                int sum = 0;
+                for (int i = 0; i < n; i++) {
+                    if (map.containsKey(keys[i])) {
+                        sum += map.get(keys[i]);
+                    }
+                }
+                for (int i = 0; i < n; i++) {
+                    sum += map.remove(keys[i]);
+                }
+                return sum;
+            });
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A minimal microbenchmark runner in the style of JMH, with no dependencies outside the JDK.  Each
+ * benchmark is warmed up for a fixed amount of time (so that the JIT compiler has settled), then
+ * timed over several measurement iterations, and its mean time per operation is reported along
+ * with the spread between iterations.
+ */
+public class Harness {
+
+    /**
+     * A benchmarked operation.  Its result is consumed by the harness so that the JIT compiler
+     * cannot eliminate the work done to compute it.
+     */
+    @FunctionalInterface
+    public interface Op {
+
+        /**
+         * Perform one operation and return any value derived from its work.
+         */
+        Object run();
+    }
+
+    /**
+     * The measured cost of a benchmark.
+     *
+     * @param name    the name of the benchmark
+     * @param nsPerOp the mean time per operation over all measurement iterations [ns]
+     * @param error   the standard deviation of the per-iteration means [ns]
+     */
+    public record Result(String name, double nsPerOp, double error) {
+
+    }
+
+    /**
+     * Accumulates hashes of benchmark results so that they are observably used.
+     */
+    private static volatile int sink;
+
+    /**
+     * How long to run each benchmark before measuring it [ms].
+     */
+    private final long warmupMillis;
+
+    /**
+     * How long each measurement iteration lasts [ms].
+     */
+    private final long iterationMillis;
+
+    /**
+     * The number of measurement iterations per benchmark.
+     */
+    private final int iterations;
+
+    /**
+     * Only benchmarks whose names contain this string are run.
+     */
+    private final String filter;
+
+    /**
+     * The results of all benchmarks that have been run, in order.
+     */
+    private final List<Result> results;
+
+    /**
+     * Create a harness that warms each benchmark up for `warmupMillis` ms, then measures it over
+     * `iterations` iterations of `iterationMillis` ms each.  Only benchmarks whose names contain
+     * `filter` will be run.
+     */
+    public Harness(long warmupMillis, long iterationMillis, int iterations, String filter) {
+        this.warmupMillis = warmupMillis;
+        this.iterationMillis = iterationMillis;
+        this.iterations = iterations;
+        this.filter = filter;
+        results = new ArrayList<>();
+    }
+
+    /**
+     * Measure `op` under the name `name` (unless it is excluded by this harness's filter), and
+     * print and record its result.
+     */
+    public void run(String name, Op op) {
+        if (!name.contains(filter)) {
+            return;
+        }
+
+        runFor(op, warmupMillis);
+
+        double[] means = new double[iterations];
+        for (int k = 0; k < iterations; k++) {
+            means[k] = runFor(op, iterationMillis);
+        }
+
+        double mean = 0;
+        for (double m : means) {
+            mean += m;
+        }
+        mean /= iterations;
+        double var = 0;
+        for (double m : means) {
+            var += (m - mean) * (m - mean);
+        }
+        double error = iterations > 1 ? Math.sqrt(var / (iterations - 1)) : 0;
+
+        Result result = new Result(name, mean, error);
+        results.add(result);
+        System.out.printf("%-50s %14.1f +- %10.1f ns/op\n", name, mean, error);
+    }
+
+    /**
+     * Return the results of all benchmarks run by this harness so far.
+     */
+    public List<Result> results() {
+        return results;
+    }
+
+    /**
+     * Repeatedly run `op` for at least `millis` ms and return the mean time per operation [ns].
+     */
+    private static double runFor(Op op, long millis) {
+        long budget = millis * 1_000_000L;
+        long ops = 0;
+        int hash = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            // Check the clock in batches so that timing overhead does not dominate cheap ops
+            for (int i = 0; i < 16; i++) {
+                Object r = op.run();
+                hash += r == null ? 0 : r.hashCode();
+            }
+            ops += 16;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < budget);
+        sink += hash;
+        return (double) elapsed / ops;
+    }
+}
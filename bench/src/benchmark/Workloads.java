@@ -0,0 +1,84 @@
+package benchmark;
+
+import graph.MazeGraph;
+import graph.MazeGraph.MazeEdge;
+import graph.MazeGraph.MazeVertex;
+import java.util.Random;
+import util.GameMap;
+import util.Randomness;
+
+/**
+ * Deterministic inputs shared by the benchmarks: generated mazes and random queries on them.
+ */
+public class Workloads {
+
+    /**
+     * A maze of size `width` x `height` (in path columns and rows, as passed to `GameModel`), along
+     * with a fixed sequence of pathfinding queries on it.
+     */
+    public record Maze(int width, int height, MazeGraph graph, MazeVertex[] srcs,
+                       MazeVertex[] dsts, MazeEdge[] prevs) {
+
+        /**
+         * Return the number of queries in this workload.
+         */
+        public int numQueries() {
+            return srcs.length;
+        }
+    }
+
+    /**
+     * Generate the maze of size `width` x `height` produced by `seed` (in the same way as
+     * `GameMap.generate()`), along with `numQueries` random queries.  Half of the queries have a
+     * previous edge that their path may not backtrack.
+     */
+    public static Maze maze(int width, int height, long seed, int numQueries) {
+        MazeGraph graph = new MazeGraph(GameMap.generate(width, height, new Randomness(seed)));
+
+        Random rng = new Random(seed);
+        MazeVertex[] srcs = new MazeVertex[numQueries];
+        MazeVertex[] dsts = new MazeVertex[numQueries];
+        MazeEdge[] prevs = new MazeEdge[numQueries];
+        for (int q = 0; q < numQueries; q++) {
+            srcs[q] = graph.vertex(rng.nextInt(graph.vertexCount()));
+            dsts[q] = graph.vertex(rng.nextInt(graph.vertexCount()));
+            if (rng.nextBoolean()) {
+                for (MazeEdge e : srcs[q].outgoingEdges()) {
+                    prevs[q] = e.reverse();
+                    break;
+                }
+            }
+        }
+        return new Maze(width, height, graph, srcs, dsts, prevs);
+    }
+
+    /**
+     * Return `n` random priorities in [0, 1000), as produced by `seed`.
+     */
+    public static double[] priorities(int n, long seed) {
+        Random rng = new Random(seed);
+        double[] ans = new double[n];
+        for (int i = 0; i < n; i++) {
+            ans[i] = rng.nextDouble() * 1000;
+        }
+        return ans;
+    }
+
+    /**
+     * Return `n` distinct boxed keys in a random order, as produced by `seed`.
+     */
+    public static Integer[] keys(int n, long seed) {
+        Random rng = new Random(seed);
+        Integer[] ans = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            ans[i] = i * 31;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = rng.nextInt(i + 1);
+            Integer tmp = ans[i];
+            ans[i] = ans[j];
+            ans[j] = tmp;
+        }
+        return ans;
+    }
+}
@@ -0,0 +1,239 @@
+package graph;
+
+import graph.MazeGraph.Direction;
+import graph.MazeGraph.MazeEdge;
+import graph.MazeGraph.MazeVertex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A table of shortest non-backtracking paths in a `MazeGraph`, keyed by a source vertex and the
+ * direction of the edge that was used to arrive there.  Since a maze never changes after it is
+ * constructed, each row of the table (the result of one Dijkstra search) only needs to be computed
+ * once, after which next-hop and distance queries from that source are O(1) lookups.  Rows are
+ * computed lazily and retained in least-recently-used order up to a memory budget, so that large
+ * boards do not need to hold all of their rows at once.
+ * <p>
+ * A row is only computed once a second query is made from its source, since many sources are only
+ * ever queried once; the first query is instead answered by an A* search (see `MazePathfinder`),
+ * which settles far fewer vertices and finds the same path.
+ * <p>
+ * A table may be queried by several threads at once.  Rows are computed without holding its lock,
+ * so a row may occasionally be computed twice, but both computations give the same row.
+ */
+public class DistanceTable {
+
+    /**
+     * The default amount of memory that a table may use for its rows [bytes].  Each game played
+     * (on its own maze) has its own table, so this is kept small enough for many games to run at
+     * once.
+     */
+    public static final long DEFAULT_MAX_BYTES = 4L << 20;
+
+    /**
+     * Marks a vertex that has no incoming/outgoing direction in a row (either because it is the
+     * row's source or because it is unreachable from that source).
+     */
+    private static final byte NONE = -1;
+
+    /**
+     * The shortest non-backtracking paths from one source, summarized per vertex (indexed by
+     * `id()`).
+     *
+     * @param distance  the length of the shortest path to each vertex, or POSITIVE_INFINITY if the
+     *                  vertex is unreachable
+     * @param lastEdge  the direction of the last edge on the shortest path to each vertex, or NONE
+     * @param firstEdge the direction of the first edge on the shortest path to each vertex, or
+     *                  NONE
+     */
+    private record Row(double[] distance, byte[] lastEdge, byte[] firstEdge) {
+
+    }
+
+    /**
+     * The rows that have been computed so far, keyed by source id and incoming direction
+     * and kept in access order.  Guarded by its own lock, as is `queried`.
+     */
+    private final LinkedHashMap<Integer, Row> rows;
+
+    /**
+     * The keys of the rows that have been queried at least once (whether or not they are stored).
+     */
+    private final BitSet queried;
+
+    /**
+     * The graph whose paths are summarized by this table.
+     */
+    private final MazeGraph graph;
+
+    /**
+     * The number of vertices in `graph`.
+     */
+    private final int numVertices;
+
+    /**
+     * Create an empty table of paths in `graph` that will retain as many rows as fit in
+     * `maxBytes` (but always at least one).
+     */
+    public DistanceTable(MazeGraph graph, long maxBytes) {
+        this.graph = graph;
+        numVertices = graph.vertexCount();
+        queried = new BitSet();
+        // Each row stores a double and two bytes per vertex
+        long rowBytes = 10L * numVertices;
+        int maxRows = Math.clamp(maxBytes / rowBytes, 1, Integer.MAX_VALUE);
+        rows = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Row> eldest) {
+                return size() > maxRows;
+            }
+        };
+    }
+
+    /**
+     * Create an empty table of paths in `graph` with the default memory budget.
+     */
+    public DistanceTable(MazeGraph graph) {
+        this(graph, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Returns the same path as `Pathfinding.shortestNonBacktrackingPath(src, dst, previousEdge)`,
+     * computing it from a stored row if possible.
+     */
+    public List<MazeEdge> shortestNonBacktrackingPath(MazeVertex src, MazeVertex dst,
+            MazeEdge previousEdge) {
+        Row row = row(src, previousEdge);
+        if (row == null) {
+            MazePathfinder paths = MazePathfinder.forGraph(graph);
+            return paths.search(src, dst, previousEdge) ? paths.path() : null;
+        }
+        if (row.distance[dst.id()] == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+
+        List<MazeEdge> ret = new ArrayList<>();
+        MazeVertex v = dst;
+        while (v != src) {
+            Direction d = Direction.values()[row.lastEdge[v.id()]];
+            MazeEdge e = v.edgeInDirection(d.reverse()).reverse();
+            ret.add(e);
+            v = e.tail();
+        }
+        Collections.reverse(ret);
+        return ret;
+    }
+
+    /**
+     * Return the first edge of the shortest non-backtracking path from `src` to `dst` (as
+     * documented by `Pathfinding.shortestNonBacktrackingPath`), or null if `src` equals `dst` or
+     * no such path exists.  Requires that if `previousEdge != null` then
+     * `previousEdge.head().equals(src)`.
+     */
+    public MazeEdge nextEdge(MazeVertex src, MazeVertex dst, MazeEdge previousEdge) {
+        Row row = row(src, previousEdge);
+        if (row == null) {
+            MazePathfinder paths = MazePathfinder.forGraph(graph);
+            return paths.search(src, dst, previousEdge) && paths.pathLength() > 0
+                    ? paths.pathEdge(0) : null;
+        }
+        byte d = row.firstEdge[dst.id()];
+        return d == NONE ? null : src.edgeInDirection(Direction.values()[d]);
+    }
+
+    /**
+     * Return the length of the shortest non-backtracking path from `src` to `dst`, or
+     * POSITIVE_INFINITY if no such path exists.  Requires that if `previousEdge != null` then
+     * `previousEdge.head().equals(src)`.
+     */
+    public double distance(MazeVertex src, MazeVertex dst, MazeEdge previousEdge) {
+        Row row = row(src, previousEdge);
+        if (row == null) {
+            MazePathfinder paths = MazePathfinder.forGraph(graph);
+            return paths.search(src, dst, previousEdge) ? paths.distanceTo(dst)
+                    : Double.POSITIVE_INFINITY;
+        }
+        return row.distance[dst.id()];
+    }
+
+    /**
+     * Return the row of paths from `src` after arriving via `previousEdge`, computing it if it is
+     * not already stored but has been queried before, or return null if this is its first query.
+     */
+    private Row row(MazeVertex src, MazeEdge previousEdge) {
+        assert previousEdge == null || previousEdge.head().equals(src);
+        int incoming = previousEdge == null ? Direction.values().length
+                : previousEdge.direction().ordinal();
+        int key = src.id() * (Direction.values().length + 1) + incoming;
+        synchronized (rows) {
+            Row row = rows.get(key);
+            if (row != null) {
+                return row;
+            }
+            if (!queried.get(key)) {
+                queried.set(key);
+                return null;
+            }
+        }
+        Row row = computeRow(src, previousEdge);
+        synchronized (rows) {
+            rows.put(key, row);
+        }
+        return row;
+    }
+
+    /**
+     * Run a search from `src` and summarize its results as a `Row`.
+     */
+    private Row computeRow(MazeVertex src, MazeEdge previousEdge) {
+        MazePathfinder paths = MazePathfinder.forGraph(graph);
+        paths.search(src, null, previousEdge);
+        byte[] directions = graph.adjacency().directions();
+        int[] tails = new int[numVertices];
+
+        double[] distance = new double[numVertices];
+        byte[] lastEdge = new byte[numVertices];
+        byte[] firstEdge = new byte[numVertices];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(lastEdge, NONE);
+        Arrays.fill(firstEdge, NONE);
+
+        for (int v = 0; v < numVertices; v++) {
+            MazeVertex vertex = graph.vertex(v);
+            if (vertex != src && paths.reached(vertex)) {
+                int k = paths.lastEdgeTo(vertex);
+                distance[v] = paths.distanceTo(vertex);
+                lastEdge[v] = directions[k];
+                tails[v] = graph.edge(k).tail().id();
+            }
+        }
+        distance[src.id()] = 0;
+
+        // Resolve first edges by walking back along each path until reaching a vertex whose first
+        //  edge is already known, then filling in the vertices that were walked over.
+        int s = src.id();
+        int[] pending = new int[numVertices];
+        for (int v = 0; v < numVertices; v++) {
+            int numPending = 0;
+            int w = v;
+            while (w != s && lastEdge[w] != NONE && firstEdge[w] == NONE) {
+                pending[numPending++] = w;
+                if (tails[w] == s) {
+                    firstEdge[w] = lastEdge[w];
+                    break;
+                }
+                w = tails[w];
+            }
+            byte d = (w == s || lastEdge[w] == NONE) ? NONE : firstEdge[w];
+            for (int i = 0; i < numPending; i++) {
+                firstEdge[pending[i]] = d;
+            }
+        }
+        return new Row(distance, lastEdge, firstEdge);
+    }
+}
@@ -0,0 +1,112 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * A min priority queue of distinct elements of type `KeyType` associated with (extrinsic) double
+ * priorities, with the same contract as `MinPQueue`.  Each distinct element is assigned an int
+ * handle the first time it is added, and the queue itself is an `IntMinPQueue` of handles, so
+ * reordering the heap never touches the element-to-handle map (unlike `MinPQueue`, which updates
+ * its index map on every swap).  Handles are retained after their elements are removed, so memory
+ * use is proportional to the number of distinct elements ever added.
+ */
+public class IndexedMinPQueue<KeyType> {
+
+    /**
+     * Associates each element that has ever been added to this queue with its handle.
+     */
+    private final ObjIntPacMap<KeyType> handles;
+
+    /**
+     * The element with each handle.  Only the first `handles.size()` entries are meaningful.
+     */
+    private Object[] keys;
+
+    /**
+     * A queue of the handles of the elements in this queue.
+     */
+    private final IntMinPQueue queue;
+
+    /**
+     * Create an empty queue backed by a heap of the default arity.
+     */
+    public IndexedMinPQueue() {
+        this(IntMinPQueue.DEFAULT_ARITY);
+    }
+
+    /**
+     * Create an empty queue backed by a heap whose nodes have `arity` children.  Requires
+     * `arity >= 2`.
+     */
+    public IndexedMinPQueue(int arity) {
+        handles = new ObjIntPacMap<>();
+        keys = new Object[16];
+        queue = new IntMinPQueue(keys.length, arity);
+    }
+
+    /**
+     * Return whether this queue contains no elements.
+     */
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * Return the number of elements contained in this queue.
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Return an element associated with the smallest priority in this queue.  This is the same
+     * element that would be removed by a call to `remove()` (assuming no mutations in between).
+     * Throws a `NoSuchElementException` if this queue is empty.
+     */
+    public KeyType peek() {
+        return key(queue.peek());
+    }
+
+    /**
+     * Return the minimum priority associated with an element in this queue.  Throws a
+     * `NoSuchElementException` if this queue is empty.
+     */
+    public double minPriority() {
+        return queue.minPriority();
+    }
+
+    /**
+     * If `key` is already contained in this queue, change its associated priority to `priority`.
+     * Otherwise, add it to this queue with that priority.
+     */
+    public void addOrUpdate(KeyType key, double priority) {
+        int handle = handles.getOrDefault(key, -1);
+        if (handle < 0) {
+            handle = handles.size();
+            if (handle == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * keys.length);
+                queue.ensureCapacity(keys.length);
+            }
+            keys[handle] = key;
+            handles.put(key, handle);
+        }
+        queue.addOrUpdate(handle, priority);
+    }
+
+    /**
+     * Remove and return the element associated with the smallest priority in this queue.  If
+     * multiple elements are tied for the smallest priority, an arbitrary one will be removed.
+     * Throws NoSuchElementException if this queue is empty.
+     */
+    public KeyType remove() {
+        return key(queue.remove());
+    }
+
+    /**
+     * Return the element with handle `handle`.
+     */
+    @SuppressWarnings("unchecked")
+    private KeyType key(int handle) {
+        return (KeyType) keys[handle];
+    }
+}
@@ -0,0 +1,254 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A min priority queue of distinct int keys in `[0..capacity())` associated with double
+ * priorities, implemented as an indexed d-ary heap.  Priorities are stored in a primitive array
+ * indexed by key, and each key's position in the heap is tracked in another, so changing a key's
+ * priority takes O(log N) time without any allocation.  Wider heaps are shallower, which makes
+ * adding elements and lowering their priorities (the common operations in Dijkstra's algorithm)
+ * cheaper at the cost of more comparisons per removal.
+ * <p>
+ * With an arity of 2, this queue makes the same comparisons as `MinPQueue`, and so breaks ties
+ * between equal priorities in the same way.
+ */
+public class IntMinPQueue {
+
+    /**
+     * The default number of children of each node in the heap.
+     */
+    public static final int DEFAULT_ARITY = 4;
+
+    /**
+     * The number of children of each node in the heap.  Must be at least 2.
+     */
+    private final int arity;
+
+    /**
+     * The keys in this queue, arranged as a d-ary min-heap by priority.  Only the first `size`
+     * entries are meaningful.  Satisfies `priority[heap[i]] >= priority[heap[(i-1)/arity]]` for
+     * all `i` in `[1..size)`.
+     */
+    private int[] heap;
+
+    /**
+     * The number of keys in this queue.
+     */
+    private int size;
+
+    /**
+     * The priority associated with each key in this queue (entries for other keys are
+     * meaningless).
+     */
+    private double[] priority;
+
+    /**
+     * The index of each key in `heap`, or -1 if the key is not in this queue.
+     */
+    private int[] position;
+
+    /**
+     * Create an empty queue with the default arity that can hold keys in `[0..capacity)`.
+     */
+    public IntMinPQueue(int capacity) {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    /**
+     * Create an empty queue whose heap nodes have `arity` children, and that can hold keys in
+     * `[0..capacity)`.  Requires `arity >= 2` and `capacity >= 0`.
+     */
+    public IntMinPQueue(int capacity, int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Heap arity must be at least 2.");
+        }
+        this.arity = arity;
+        heap = new int[capacity];
+        priority = new double[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Return the number of distinct keys this queue can hold; keys must be less than this.
+     */
+    public int capacity() {
+        return position.length;
+    }
+
+    /**
+     * Increase the capacity of this queue to at least `capacity`, keeping its contents.
+     */
+    public void ensureCapacity(int capacity) {
+        int oldCapacity = position.length;
+        if (capacity <= oldCapacity) {
+            return;
+        }
+        capacity = Math.max(capacity, 2 * oldCapacity);
+        heap = Arrays.copyOf(heap, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+        position = Arrays.copyOf(position, capacity);
+        Arrays.fill(position, oldCapacity, capacity, -1);
+    }
+
+    /**
+     * Return whether this queue contains no elements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return the number of elements contained in this queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return whether `key` is contained in this queue.  Requires `0 <= key < capacity()`.
+     */
+    public boolean contains(int key) {
+        return position[key] >= 0;
+    }
+
+    /**
+     * Return the priority associated with `key`.  Requires that `key` is contained in this queue.
+     */
+    public double priority(int key) {
+        assert contains(key);
+        return priority[key];
+    }
+
+    /**
+     * Return an element associated with the smallest priority in this queue.  This is the same
+     * element that would be removed by a call to `remove()` (assuming no mutations in between).
+     * Throws a `NoSuchElementException` if this queue is empty.
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return heap[0];
+    }
+
+    /**
+     * Return the minimum priority associated with an element in this queue.  Throws a
+     * `NoSuchElementException` if this queue is empty.
+     */
+    public double minPriority() {
+        return priority[peek()];
+    }
+
+    /**
+     * If `key` is already contained in this queue, change its associated priority to `priority`.
+     * Otherwise, add it to this queue with that priority.  Requires `0 <= key < capacity()`.
+     */
+    public void addOrUpdate(int key, double priority) {
+        int i = position[key];
+        if (i < 0) {
+            this.priority[key] = priority;
+            heap[size] = key;
+            position[key] = size;
+            size += 1;
+            siftUp(size - 1);
+        } else {
+            double currentPriority = this.priority[key];
+            if (currentPriority == priority) {
+                return;
+            }
+            this.priority[key] = priority;
+            if (priority > currentPriority) {
+                siftDown(i);
+            } else {
+                siftUp(i);
+            }
+        }
+    }
+
+    /**
+     * Remove and return the element associated with the smallest priority in this queue.  If
+     * multiple elements are tied for the smallest priority, an arbitrary one will be removed.
+     * Throws NoSuchElementException if this queue is empty.
+     */
+    public int remove() {
+        int key = peek();
+        size -= 1;
+        position[key] = -1;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return key;
+    }
+
+    /**
+     * Remove all elements from this queue.  Takes time proportional to the queue's size.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Move the key at index `i` of `heap` toward the root until its parent's priority is not
+     * greater than its own, shifting the keys it passes down by one level.
+     */
+    private void siftUp(int i) {
+        int key = heap[i];
+        double p = priority[key];
+        while (i > 0) {
+            int parent = (i - 1) / arity;
+            int parentKey = heap[parent];
+            if (p >= priority[parentKey]) {
+                break;
+            }
+            heap[i] = parentKey;
+            position[parentKey] = i;
+            i = parent;
+        }
+        heap[i] = key;
+        position[key] = i;
+    }
+
+    /**
+     * Move the key at index `i` of `heap` toward the leaves until none of its children has a lower
+     * priority, shifting the keys it passes up by one level.  Ties between children are broken in
+     * favor of the leftmost.
+     */
+    private void siftDown(int i) {
+        int key = heap[i];
+        double p = priority[key];
+        while (true) {
+            int first = arity * i + 1;
+            if (first >= size) {
+                break;
+            }
+            int end = Math.min(first + arity, size);
+            int child = first;
+            double childPriority = priority[heap[first]];
+            for (int c = first + 1; c < end; c++) {
+                double cp = priority[heap[c]];
+                if (cp < childPriority) {
+                    child = c;
+                    childPriority = cp;
+                }
+            }
+            if (childPriority >= p) {
+                break;
+            }
+            int childKey = heap[child];
+            heap[i] = childKey;
+            position[childKey] = i;
+            i = child;
+        }
+        heap[i] = key;
+        position[key] = i;
+    }
+}
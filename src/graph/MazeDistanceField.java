@@ -0,0 +1,142 @@
+package graph;
+
+import graph.MazeGraph.Adjacency;
+import graph.MazeGraph.MazeEdge;
+import graph.MazeGraph.MazeVertex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The field of shortest non-backtracking paths to one vertex of a `MazeGraph`, computed over the
+ * graph's CSR view.  This gives exactly the same next edges and paths as
+ * `Pathfinding.distanceField(graph.vertices(), dst)`, but stores its distances in an array indexed
+ * by edge rather than in a map, so it is much cheaper to compute.
+ */
+public class MazeDistanceField {
+
+    /**
+     * The graph containing the paths in this field.
+     */
+    private final MazeGraph graph;
+
+    /**
+     * The destination of all paths in this field.
+     */
+    private final MazeVertex dst;
+
+    /**
+     * For each edge `k` (by CSR index), the length of the shortest non-backtracking path to `dst`
+     * from the head of `k` whose first edge does not backtrack `k`, or POSITIVE_INFINITY if there
+     * is no such path.
+     */
+    private final double[] remaining;
+
+    /**
+     * Compute the field of shortest non-backtracking paths to `dst` in `graph`.
+     */
+    public MazeDistanceField(MazeGraph graph, MazeVertex dst) {
+        this.graph = graph;
+        this.dst = dst;
+
+        Adjacency adj = graph.adjacency();
+        int[] offsets = adj.offsets();
+        int[] heads = adj.heads();
+        double[] weights = adj.weights();
+        int[] reverses = adj.reverses();
+
+        remaining = new double[heads.length];
+        Arrays.fill(remaining, Double.POSITIVE_INFINITY);
+        IntMinPQueue frontier = new IntMinPQueue(heads.length);
+        int d = dst.id();
+        for (int k = offsets[d]; k < offsets[d + 1]; k++) {
+            remaining[reverses[k]] = 0;
+            frontier.addOrUpdate(reverses[k], 0);
+        }
+
+        while (!frontier.isEmpty()) {
+            // `next` is the first edge of a shortest path from any edge arriving at its tail
+            //  (except for the one that it would backtrack)
+            int next = frontier.remove();
+            int tail = heads[reverses[next]];
+            double newDistance = remaining[next] + weights[next];
+            for (int k = offsets[tail]; k < offsets[tail + 1]; k++) {
+                if (heads[k] == heads[next]) {
+                    continue;
+                }
+                int e = reverses[k];
+                if (remaining[e] > newDistance) {
+                    remaining[e] = newDistance;
+                    frontier.addOrUpdate(e, newDistance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the destination vertex of this field.
+     */
+    public MazeVertex dst() {
+        return dst;
+    }
+
+    /**
+     * Return the first edge of a shortest non-backtracking path from `v` to `dst()` whose first
+     * edge does not backtrack `previousEdge` (if it is not null), or null if `v` is `dst()` or
+     * there is no such path.  Ties are broken in favor of the edge that comes first in
+     * `v.outgoingEdges()`.  Requires that if `previousEdge != null` then
+     * `previousEdge.head().equals(v)`.
+     */
+    public MazeEdge nextEdge(MazeVertex v, MazeEdge previousEdge) {
+        assert previousEdge == null || previousEdge.head().equals(v);
+        int k = nextEdgeIndex(v.id(), previousEdge == null ? -1 : previousEdge.tail().id());
+        return k < 0 ? null : graph.edge(k);
+    }
+
+    /**
+     * Return the list of edges obtained by following `nextEdge()` from `v` (after arriving via
+     * `previousEdge`) until reaching `dst()`, or null if there is no non-backtracking path to
+     * `dst()`.  Requires that if `previousEdge != null` then `previousEdge.head().equals(v)`.
+     */
+    public List<MazeEdge> pathFrom(MazeVertex v, MazeEdge previousEdge) {
+        assert previousEdge == null || previousEdge.head().equals(v);
+        int[] heads = graph.adjacency().heads();
+        List<MazeEdge> ret = new ArrayList<>();
+        int w = v.id();
+        int back = previousEdge == null ? -1 : previousEdge.tail().id();
+        while (w != dst.id()) {
+            int k = nextEdgeIndex(w, back);
+            if (k < 0) {
+                return null;
+            }
+            ret.add(graph.edge(k));
+            back = w;
+            w = heads[k];
+        }
+        return ret;
+    }
+
+    /**
+     * Return the CSR index of the first edge of a shortest non-backtracking path from vertex `v`
+     * to `dst` that does not lead to vertex `back`, or -1 if `v` is `dst` or there is no such
+     * path.
+     */
+    private int nextEdgeIndex(int v, int back) {
+        if (v == dst.id()) {
+            return -1;
+        }
+        Adjacency adj = graph.adjacency();
+        int[] offsets = adj.offsets();
+        int[] heads = adj.heads();
+        double[] weights = adj.weights();
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+            if (heads[k] != back && weights[k] + remaining[k] < bestDistance) {
+                best = k;
+                bestDistance = weights[k] + remaining[k];
+            }
+        }
+        return best;
+    }
+}
@@ -1,13 +1,15 @@
 package graph;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import util.ElevationGrid;
 import util.GameMap;
 import util.MazeGenerator;
 import util.MazeGenerator.TileType;
+import util.TileGrid;
 
 /**
  * A graph representing a game's maze, connecting the "path" tiles of a tile grid.
@@ -60,17 +62,32 @@ public class MazeGraph {
         private final IPair loc;
 
         /**
-         * This vertex's outgoing edges, each associated with the direction it points in.
+         * This vertex's index in its graph.  Indices are dense, running from 0 to
+         * `vertexCount() - 1`.
          */
-        private final HashMap<Direction, MazeEdge> edgeMap;
+        private final int id;
 
+        /**
+         * This vertex's outgoing edges, indexed by the ordinal of the direction they point in
+         * (null where there is no edge in that direction).
+         */
+        private final MazeEdge[] edgesByDirection;
+
+        /**
+         * An unmodifiable view of this vertex's outgoing edges, in order of direction.  Iterating
+         * in a fixed order keeps traversals independent of the iteration order of identity-hashed
+         * collections (which may differ between runs).
+         */
+        private List<MazeEdge> outgoingEdges;
 
         /**
-         * Construct a new vertex at location `loc` with no outgoing edges.
+         * Construct a new vertex at location `loc` with index `id` and no outgoing edges.
          */
-        public MazeVertex(IPair loc) {
+        public MazeVertex(IPair loc, int id) {
             this.loc = loc;
-            edgeMap = new HashMap<>();
+            this.id = id;
+            edgesByDirection = new MazeEdge[Direction.values().length];
+            outgoingEdges = List.of();
         }
 
         /**
@@ -79,7 +96,7 @@ public class MazeGraph {
          * boundary (that is, an edge connecting a top tile to a bottom tile points "up").
          */
         public MazeEdge edgeInDirection(Direction direction) {
-            return edgeMap.get(direction);
+            return edgesByDirection[direction.ordinal()];
         }
 
         /**
@@ -89,9 +106,16 @@ public class MazeGraph {
             return loc;
         }
 
+        /**
+         * Return this vertex's index in its graph.
+         */
+        public int id() {
+            return id;
+        }
+
         @Override
         public Iterable<MazeEdge> outgoingEdges() {
-            return edgeMap.values();
+            return outgoingEdges;
         }
 
         /**
@@ -102,8 +126,9 @@ public class MazeGraph {
          */
         public void addOutgoingEdge(MazeEdge edge) {
             assert edge.tail().equals(this);
-            assert !edgeMap.containsKey(edge.direction());
-            edgeMap.put(edge.direction(), edge);
+            assert edgeInDirection(edge.direction()) == null;
+            edgesByDirection[edge.direction().ordinal()] = edge;
+            outgoingEdges = Arrays.stream(edgesByDirection).filter(e -> e != null).toList();
         }
 
         @Override
@@ -128,15 +153,50 @@ public class MazeGraph {
         }
     }
 
+    /**
+     * A compressed sparse row (CSR) view of a graph's edges, indexed by vertex `id()`.  The
+     * outgoing edges of vertex `v` occupy indices `offsets[v]` (inclusive) to `offsets[v+1]`
+     * (exclusive) of the other arrays, in order of direction (the same order as
+     * `outgoingEdges()`).  For each such edge index `k`, `heads[k]` is the id of the edge's head,
+     * `weights[k]` is its weight, `directions[k]` is the ordinal of its direction, and
+     * `reverses[k]` is the index of its reverse edge.  These arrays are shared and must not be
+     * modified.
+     */
+    public record Adjacency(int[] offsets, int[] heads, double[] weights, byte[] directions,
+                            int[] reverses) {
+
+        /**
+         * Return the number of vertices described by this adjacency view.
+         */
+        public int vertexCount() {
+            return offsets.length - 1;
+        }
+    }
+
     /* ****************************************************************
      * Fields of MazeGraph                                            *
      **************************************************************** */
 
     /**
-     * The vertices of this graph, each associated with the location of its corresponding path tile
-     * in the tile grid.
+     * The vertices of this graph, indexed by their `id()`.
+     */
+    private final MazeVertex[] vertices;
+
+    /**
+     * The id of the vertex at each tile of the tile grid (indexed as `i * height + j`), or -1 for
+     * tiles that are not vertices.
+     */
+    private final int[] tileIds;
+
+    /**
+     * The edges of this graph in compressed sparse row form.
      */
-    private final HashMap<IPair, MazeVertex> vertices;
+    private final Adjacency adjacency;
+
+    /**
+     * The edges of this graph, indexed by their position in `adjacency`.
+     */
+    private final MazeEdge[] edges;
 
     /**
      * The width of the tile grid defining this maze.
@@ -148,39 +208,65 @@ public class MazeGraph {
      */
     private final int height;
 
+    /**
+     * The maximum number of distance fields retained by `distanceField()`.
+     */
+    private static final int MAX_DISTANCE_FIELDS = 32;
+
+    /**
+     * The table of shortest paths through this graph, or null if it has not been requested yet.
+     * Guarded by this graph's lock.
+     */
+    private DistanceTable distances;
+
+    /**
+     * The amount of memory that `distances` may use for its rows [bytes].  Guarded by this
+     * graph's lock.
+     */
+    private long distanceTableBudget = DistanceTable.DEFAULT_MAX_BYTES;
+
+    /**
+     * The distance fields to the vertices most recently passed to `distanceField()`, in access
+     * order.  Guarded by its own lock.
+     */
+    private final LinkedHashMap<MazeVertex, MazeDistanceField> distanceFields =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<MazeVertex, MazeDistanceField> eldest) {
+                    return size() > MAX_DISTANCE_FIELDS;
+                }
+            };
+
     /* ****************************************************************
      * Methods of MazeGraph                                           *
      **************************************************************** */
 
     /**
-     * Construct the maze graph corresponding to the tile grid `map`. Requires `map.types()[2][2]`
-     * to be a `TileType.PATH` and that all `PATH` tiles belong to the same orthogonally connected
-     * component. Requires `map.types()` and `map.elevations()` have the same shape, with the first
-     * index corresponding to columns and the second index corresponding to rows.
+     * Construct the maze graph corresponding to the tile grid `map`. Requires tile (2, 2) to be a
+     * `TileType.PATH` and that all `PATH` tiles belong to the same orthogonally connected
+     * component.
      */
     public MazeGraph(GameMap map) {
-        width = map.types().length;
-        height = map.types()[0].length;
-        vertices = new HashMap<>();
+        TileGrid types = map.types();
+        ElevationGrid elevations = map.elevations();
+        width = types.width();
+        height = types.height();
+        tileIds = new int[width * height];
+        Arrays.fill(tileIds, -1);
 
         //General idea is to start at [2][2] and use a BFS to explore all the tiles starting from one tile,
-        //since we know all tiles are connected
-
-        Set<IPair> discovered = new HashSet<>();
-        Queue<IPair> frontier = new LinkedList<>();
-
-        IPair start = new IPair(2,2);
-        discovered.add(start);
-        frontier.add(start);
+        //since we know all tiles are connected.  Vertices are numbered in the order they are
+        //discovered, so the list of discovered vertices doubles as the BFS queue.
 
-        vertices.put(start, new MazeVertex(start));
+        List<MazeVertex> discovered = new ArrayList<>();
+        discover(new IPair(2, 2), discovered);
 
-        while(!frontier.isEmpty()){
-            IPair current = frontier.remove();
-            MazeVertex currentV = vertices.get(current);
+        for (int next = 0; next < discovered.size(); next++) {
+            MazeVertex currentV = discovered.get(next);
 
-            int i = current.i();
-            int j = current.j();
+            int i = currentV.loc().i();
+            int j = currentV.loc().j();
 
             for(Direction dir : Direction.values()){
                 int newI = switch (dir) {
@@ -196,24 +282,18 @@ public class MazeGraph {
                 newI = (newI + width) % width;
                 newJ = (newJ + height) % height;
 
-                if(map.types()[newI][newJ] != TileType.PATH) continue;
+                if(types.get(newI, newJ) != TileType.PATH) continue;
 
 
                 //Check if neighbor vertex exists already, add it if it is not
-                IPair newPair = new IPair(newI, newJ);
-                MazeVertex neighborV;
-                if(discovered.contains(newPair)){
-                    neighborV = vertices.get(newPair);
-                }
-                else{
-                    neighborV = new MazeVertex(newPair);
-                    vertices.put(newPair, neighborV);
-                }
+                int neighborId = tileIds[newI * height + newJ];
+                MazeVertex neighborV = neighborId >= 0 ? discovered.get(neighborId)
+                        : discover(new IPair(newI, newJ), discovered);
 
                 //add edge in both directions if it does not already exist
                 if (currentV.edgeInDirection(dir) == null) {
-                    double currElev = map.elevations()[i][j];
-                    double newElev = map.elevations()[newI][newJ];
+                    double currElev = elevations.get(i, j);
+                    double newElev = elevations.get(newI, newJ);
 
                     double edgeW = edgeWeight(currElev, newElev);
                     double edgeWRev = edgeWeight(newElev, currElev);
@@ -223,18 +303,73 @@ public class MazeGraph {
                     currentV.addOutgoingEdge(newE);
                     neighborV.addOutgoingEdge(newERev);
                 }
-
-                if(!discovered.contains(newPair)){
-                    discovered.add(newPair);
-                    frontier.add(newPair);
-                }
             }
         }
 
+        vertices = discovered.toArray(new MazeVertex[0]);
+        adjacency = buildAdjacency();
+        edges = new MazeEdge[adjacency.heads().length];
+        for (MazeVertex v : vertices) {
+            int k = adjacency.offsets()[v.id()];
+            for (MazeEdge e : v.outgoingEdges) {
+                edges[k++] = e;
+            }
+        }
+    }
 
+    /**
+     * Create a vertex for the tile at `loc`, numbered with the next unused id, and append it to
+     * `discovered`.  Returns the new vertex.
+     */
+    private MazeVertex discover(IPair loc, List<MazeVertex> discovered) {
+        MazeVertex v = new MazeVertex(loc, discovered.size());
+        tileIds[loc.i() * height + loc.j()] = v.id();
+        discovered.add(v);
+        return v;
+    }
 
+    /**
+     * Return a CSR view of the edges between this graph's (fully constructed) vertices.
+     */
+    private Adjacency buildAdjacency() {
+        int[] offsets = new int[vertices.length + 1];
+        for (MazeVertex v : vertices) {
+            offsets[v.id() + 1] = offsets[v.id()] + v.outgoingEdges.size();
+        }
+        int numEdges = offsets[vertices.length];
+        int[] heads = new int[numEdges];
+        double[] weights = new double[numEdges];
+        byte[] directions = new byte[numEdges];
+        for (MazeVertex v : vertices) {
+            int k = offsets[v.id()];
+            for (MazeEdge e : v.outgoingEdges) {
+                heads[k] = e.head().id();
+                weights[k] = e.weight();
+                directions[k] = (byte) e.direction().ordinal();
+                k++;
+            }
+        }
+        int[] reverses = new int[numEdges];
+        for (MazeVertex v : vertices) {
+            int k = offsets[v.id()];
+            for (MazeEdge e : v.outgoingEdges) {
+                int w = e.head().id();
+                int r = offsets[w];
+                while (directions[r] != e.direction().reverse().ordinal()) {
+                    r++;
+                }
+                reverses[k] = r;
+                k++;
+            }
+        }
+        return new Adjacency(offsets, heads, weights, directions, reverses);
     }
 
+    /**
+     * The smallest weight that `edgeWeight()` can assign to an edge.
+     */
+    public static final double MIN_EDGE_WEIGHT = 0.25;
+
     /**
      * Return the weight that an edge should have if it connects a vertex with elevation `tailElev`
      * to a vertex with elevation `headElev`.
@@ -243,7 +378,7 @@ public class MazeGraph {
         // Uphill edges should have higher weight
         double elevDiff = Math.clamp(headElev - tailElev, -0.25, 0.25);
         double weight = 1 + elevDiff * 3;
-        assert weight >= 0;
+        assert weight >= MIN_EDGE_WEIGHT;
         return weight;
     }
 
@@ -263,36 +398,156 @@ public class MazeGraph {
         int ip = (((i - 1) / 3) * 3 + 2);
         int jp = (((j - 1) / 3) * 3 + 2);
 
-        for (IPair loc : new IPair[]{new IPair(i, j), new IPair(i, jp), new IPair(ip, j),
-                new IPair(ip, jp)}) {
-            if (vertices.containsKey(loc)) {
-                return vertices.get(loc);
+        for (MazeVertex v : new MazeVertex[]{vertexAt(i, j), vertexAt(i, jp), vertexAt(ip, j),
+                vertexAt(ip, jp)}) {
+            if (v != null) {
+                return v;
             }
         }
 
         // the only time we reach here is if (ip,jp) is inside the ghost box. In this case,
         // (ip,jp+3) is guaranteed to be a path tile outside the ghost box.
-        assert (vertices.get(new IPair(ip, jp + 3)) != null);
-        return vertices.get(new IPair(ip, jp + 3));
+        assert (vertexAt(ip, jp + 3) != null);
+        return vertexAt(ip, jp + 3);
+    }
+
+    /**
+     * Return the vertex at tile location `(i, j)`, or null if that tile is not a vertex.  Requires
+     * `0 <= i < width` and `0 <= j < height`.
+     */
+    public MazeVertex vertexAt(int i, int j) {
+        int id = tileIds[i * height + j];
+        return id >= 0 ? vertices[id] : null;
     }
 
     /**
-     * Return the full collection of vertices in this graph.
+     * Return the full collection of vertices in this graph, in order of `id()`.
      */
     public Iterable<MazeVertex> vertices() {
-        return vertices.values();
+        return Arrays.asList(vertices);
+    }
+
+    /**
+     * Return the number of vertices in this graph.
+     */
+    public int vertexCount() {
+        return vertices.length;
+    }
+
+    /**
+     * Return the vertex in this graph whose `id()` is `id`.  Requires `0 <= id < vertexCount()`.
+     */
+    public MazeVertex vertex(int id) {
+        return vertices[id];
+    }
+
+    /**
+     * Return a compressed sparse row view of this graph's edges.
+     */
+    public Adjacency adjacency() {
+        return adjacency;
+    }
+
+    /**
+     * Return the edge at index `k` of this graph's `adjacency()` arrays.  Requires `0 <= k` and
+     * `k` is less than the number of edges.
+     */
+    public MazeEdge edge(int k) {
+        return edges[k];
+    }
+
+    /**
+     * Return the index of `e` in this graph's `adjacency()` arrays.  Requires `e` is an edge of
+     * this graph.
+     */
+    public int edgeIndex(MazeEdge e) {
+        int k = adjacency.offsets()[e.tail().id()];
+        while (adjacency.directions()[k] != e.direction().ordinal()) {
+            k++;
+        }
+        return k;
+    }
+
+    /**
+     * Return the width of the tile grid defining this maze.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Return the height of the tile grid defining this maze.
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Return a lower bound on the length of every path from `v` to `w`: the number of steps
+     * between their tiles on the tile grid (ignoring walls, but taking the shorter way around each
+     * axis, since tunnels wrap around the grid's edges) times `MIN_EDGE_WEIGHT`.  Each edge changes
+     * this bound by at most its own weight, so it is a consistent heuristic for A* searches.
+     */
+    public double distanceLowerBound(MazeVertex v, MazeVertex w) {
+        int di = Math.abs(v.loc().i() - w.loc().i());
+        int dj = Math.abs(v.loc().j() - w.loc().j());
+        return MIN_EDGE_WEIGHT * (Math.min(di, width - di) + Math.min(dj, height - dj));
+    }
+
+    /**
+     * Return the table of shortest paths through this graph.  Since the graph never changes, one
+     * table is shared by every game (and every copy of a game) played on it, from any thread.
+     */
+    public synchronized DistanceTable distances() {
+        if (distances == null) {
+            distances = new DistanceTable(this, distanceTableBudget);
+        }
+        return distances;
+    }
+
+    /**
+     * Limit the rows retained by the table returned by `distances()` to `maxBytes` of memory.  If
+     * the table has already been created with a different limit, it is replaced by an empty one.
+     * Requires `maxBytes > 0`.
+     */
+    public synchronized void setDistanceTableBudget(long maxBytes) {
+        assert maxBytes > 0;
+        if (maxBytes != distanceTableBudget) {
+            distanceTableBudget = maxBytes;
+            distances = null;
+        }
+    }
+
+    /**
+     * Return the field of shortest non-backtracking paths to `target`, computing it unless it has
+     * been requested recently.  Since the graph never changes, a field remains valid for as long
+     * as it is retained, so all games played on this graph (on any thread) share recent fields.
+     */
+    public MazeDistanceField distanceField(MazeVertex target) {
+        MazeDistanceField field;
+        synchronized (distanceFields) {
+            field = distanceFields.get(target);
+        }
+        if (field == null) {
+            // Computed without holding the lock so that other threads are not held up; threads
+            //  that race to compute the same field compute identical fields
+            field = new MazeDistanceField(this, target);
+            synchronized (distanceFields) {
+                distanceFields.put(target, field);
+            }
+        }
+        return field;
     }
 
     /**
      * Return the first edge that PacMann will traverse at the start of a game.
      */
     public MazeEdge pacMannStartingEdge() {
-        IPair startingLoc = new IPair((width - 1) / 2, 3 * ((3 * (height / 3) - 1) / 4) + 2);
-        MazeVertex t = vertices.get(startingLoc);
-        if (t.edgeMap.containsKey(Direction.LEFT)) {
-            return t.edgeMap.get(Direction.LEFT).reverse();
+        MazeVertex t = vertexAt((width - 1) / 2, 3 * ((3 * (height / 3) - 1) / 4) + 2);
+        if (t.edgeInDirection(Direction.LEFT) != null) {
+            return t.edgeInDirection(Direction.LEFT).reverse();
         } else {
-            return t.edgeMap.get(Direction.UP).reverse();
+            return t.edgeInDirection(Direction.UP).reverse();
         }
     }
 
@@ -301,8 +556,7 @@ public class MazeGraph {
      * CHASE state.
      */
     public MazeEdge ghostStartingEdge() {
-        IPair startingLoc = new IPair((width - 1) / 2, 3 * ((height - 3) / 6) - 1);
-        MazeVertex s = vertices.get(startingLoc);
-        return s.edgeMap.get(Direction.RIGHT);
+        MazeVertex s = vertexAt((width - 1) / 2, 3 * ((height - 3) / 6) - 1);
+        return s.edgeInDirection(Direction.RIGHT);
     }
 }
\ No newline at end of file
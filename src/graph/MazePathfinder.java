@@ -0,0 +1,312 @@
+package graph;
+
+import graph.MazeGraph.Adjacency;
+import graph.MazeGraph.MazeEdge;
+import graph.MazeGraph.MazeVertex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * A shortest non-backtracking path search over the CSR view of a `MazeGraph` that does not
+ * allocate once it has warmed up.  Each thread owns one instance (see `forGraph()`), whose
+ * distance, predecessor and heap arrays are reused from search to search.  Rather than clearing
+ * these arrays, each search increments an epoch counter, and entries stamped with an older epoch
+ * are treated as undiscovered.
+ * <p>
+ * Searches without a destination settle vertices in exactly the same order as
+ * `Pathfinding.pathInfo()` (both use a frontier of the default `IntMinPQueue` arity), so they find
+ * the same paths.  Searches with a destination are A* searches guided by
+ * `MazeGraph.distanceLowerBound()`, which settle fewer vertices but find the same path, since
+ * both kinds of search break ties between paths of equal length in the same way (as documented by
+ * `Pathfinding.pathInfo()`) rather than by the order in which vertices are settled.
+ */
+public class MazePathfinder {
+
+    /**
+     * The instance owned by each thread.
+     */
+    private static final ThreadLocal<MazePathfinder> instances =
+            ThreadLocal.withInitial(MazePathfinder::new);
+
+    /**
+     * The graph that was most recently searched.
+     */
+    private MazeGraph graph;
+
+    /**
+     * The epoch of the current search.  Entries of `distance`, `lastEdge` and `previous` for a
+     * vertex are only meaningful if `discovered` for that vertex equals `epoch`.
+     */
+    private int epoch;
+
+    /**
+     * The epoch in which each vertex was last discovered.
+     */
+    private int[] discovered;
+
+    /**
+     * The length of the shortest known path to each discovered vertex.
+     */
+    private double[] distance;
+
+    /**
+     * The CSR index of the last edge on the shortest known path to each discovered vertex, or -1
+     * for the source.
+     */
+    private int[] lastEdge;
+
+    /**
+     * The id of the vertex that a path must not immediately return to after leaving each
+     * discovered vertex (the tail of its last edge), or -1 if there is no such vertex.
+     */
+    private int[] previous;
+
+    /**
+     * The id of the destination of the current search, or -1 if it has none.
+     */
+    private int target;
+
+    /**
+     * The ids of discovered but unsettled vertices, prioritized by `distance` plus `heuristic()`.
+     */
+    private final IntMinPQueue frontier;
+
+    /**
+     * The CSR indices of the edges of the path found by the most recent call to `search()`.  Only
+     * the first `pathLength` entries are meaningful.
+     */
+    private int[] path;
+
+    /**
+     * The number of edges in `path`, or -1 if the most recent search did not reach its
+     * destination.
+     */
+    private int pathLength;
+
+    /**
+     * Create a pathfinder with no storage.  Arrays are allocated on the first search.
+     */
+    private MazePathfinder() {
+        discovered = new int[0];
+        distance = new double[0];
+        lastEdge = new int[0];
+        previous = new int[0];
+        frontier = new IntMinPQueue(0);
+        path = new int[0];
+        pathLength = -1;
+    }
+
+    /**
+     * Return the calling thread's pathfinder, prepared to search `graph`.  The returned object must
+     * not be shared with other threads, and results of its previous search are invalidated.
+     */
+    public static MazePathfinder forGraph(MazeGraph graph) {
+        MazePathfinder pf = instances.get();
+        pf.graph = graph;
+        int n = graph.vertexCount();
+        if (pf.discovered.length < n) {
+            pf.discovered = new int[n];
+            pf.distance = new double[n];
+            pf.lastEdge = new int[n];
+            pf.previous = new int[n];
+            pf.frontier.ensureCapacity(n);
+            pf.epoch = 0;
+        }
+        pf.pathLength = -1;
+        return pf;
+    }
+
+    /**
+     * Search for shortest non-backtracking paths from `src` (as documented by
+     * `Pathfinding.pathInfo()`), where the first edge may not backtrack `previousEdge` (if it is
+     * not null).  If `dst` is not null, the search stops as soon as `dst` is settled, and returns
+     * whether a path to it was found; that path may then be read with `pathLength()` and
+     * `pathEdge()` (and distances and last edges are only meaningful for the vertices on that
+     * path).  If `dst` is null, paths to all reachable vertices are found, and true is returned.
+     * Requires that if `previousEdge != null` then `previousEdge.head().equals(src)`.
+     */
+    public boolean search(MazeVertex src, MazeVertex dst, MazeEdge previousEdge) {
+        assert previousEdge == null || previousEdge.head().equals(src);
+        target = dst == null ? -1 : dst.id();
+        if (dst == null) {
+            settleUntil(src, previousEdge, v -> false);
+            return true;
+        }
+        return settleUntil(src, previousEdge, v -> v == target) >= 0;
+    }
+
+    /**
+     * Search for a shortest non-backtracking path (as for `search()`) from `src` to whichever
+     * vertex whose id satisfies `isTarget` is nearest to `src`, stopping as soon as such a vertex
+     * is settled, and return that vertex, or null if there is none.  If one is found, the path to
+     * it may then be read with `pathLength()` and `pathEdge()` (it is empty if `src` satisfies
+     * `isTarget`).  Settles vertices in the same order as `search()` without a destination, so
+     * finds the same vertex and path as `Pathfinding.shortestNonBacktrackingPathToAny()`.
+     * Requires that if `previousEdge != null` then `previousEdge.head().equals(src)`.
+     */
+    public MazeVertex searchNearest(MazeVertex src, MazeEdge previousEdge, IntPredicate isTarget) {
+        assert previousEdge == null || previousEdge.head().equals(src);
+        target = -1;
+        int found = settleUntil(src, previousEdge, isTarget);
+        return found < 0 ? null : graph.vertex(found);
+    }
+
+    /**
+     * Settle vertices in order of their distance from `src` (plus `heuristic()`), where the first
+     * edge may not backtrack `previousEdge` (if it is not null), until settling a vertex whose id
+     * satisfies `isDst`.  Build the path to that vertex and return its id, or return -1 if the
+     * search ran to completion without settling such a vertex.
+     */
+    private int settleUntil(MazeVertex src, MazeEdge previousEdge, IntPredicate isDst) {
+        nextEpoch();
+        pathLength = -1;
+
+        Adjacency adj = graph.adjacency();
+        int[] offsets = adj.offsets();
+        int[] heads = adj.heads();
+        double[] weights = adj.weights();
+
+        int s = src.id();
+        discover(s, 0, -1, previousEdge == null ? -1 : previousEdge.tail().id());
+
+        while (!frontier.isEmpty()) {
+            int v = frontier.remove();
+            if (isDst.test(v)) {
+                buildPath(s, v);
+                return v;
+            }
+            double d = distance[v];
+            int back = previous[v];
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                int w = heads[k];
+                if (w == back) {
+                    continue;
+                }
+                double newDistance = d + weights[k];
+                if (discovered[w] != epoch) {
+                    discover(w, newDistance, k, v);
+                } else if (distance[w] > newDistance
+                        || (distance[w] == newDistance && distance[previous[w]] > d)) {
+                    distance[w] = newDistance;
+                    lastEdge[w] = k;
+                    previous[w] = v;
+                    frontier.addOrUpdate(w, newDistance + heuristic(w));
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return whether the most recent search found a path to `v`.  Requires that the search was
+     * run to completion (with a null `dst`).
+     */
+    public boolean reached(MazeVertex v) {
+        return discovered[v.id()] == epoch;
+    }
+
+    /**
+     * Return the length of the shortest path to `v` found by the most recent search.  Requires
+     * `reached(v)`.
+     */
+    public double distanceTo(MazeVertex v) {
+        assert reached(v);
+        return distance[v.id()];
+    }
+
+    /**
+     * Return the CSR index of the last edge on the shortest path to `v` found by the most recent
+     * search, or -1 if `v` is the source.  Requires `reached(v)`.
+     */
+    public int lastEdgeTo(MazeVertex v) {
+        assert reached(v);
+        return lastEdge[v.id()];
+    }
+
+    /**
+     * Return the number of edges in the path found by the most recent search with a non-null
+     * `dst` (or by the most recent `searchNearest()`), or -1 if no path was found.
+     */
+    public int pathLength() {
+        return pathLength;
+    }
+
+    /**
+     * Return the `i`th edge of the path found by the most recent search.  Requires
+     * `0 <= i < pathLength()`.
+     */
+    public MazeEdge pathEdge(int i) {
+        assert i >= 0 && i < pathLength;
+        return graph.edge(path[i]);
+    }
+
+    /**
+     * Return a new list of the edges in the path found by the most recent search, or null if no
+     * path was found.
+     */
+    public List<MazeEdge> path() {
+        if (pathLength < 0) {
+            return null;
+        }
+        List<MazeEdge> ret = new ArrayList<>(pathLength);
+        for (int i = 0; i < pathLength; i++) {
+            ret.add(graph.edge(path[i]));
+        }
+        return ret;
+    }
+
+    /**
+     * Advance to a new epoch, forgetting all discovered vertices.
+     */
+    private void nextEpoch() {
+        frontier.clear();
+        epoch += 1;
+        if (epoch == 0) {
+            // The counter wrapped around, so stale stamps could be mistaken for current ones
+            Arrays.fill(discovered, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * Record the first path found to `v` and add `v` to the frontier.
+     */
+    private void discover(int v, double dist, int edge, int prev) {
+        discovered[v] = epoch;
+        distance[v] = dist;
+        lastEdge[v] = edge;
+        previous[v] = prev;
+        frontier.addOrUpdate(v, dist + heuristic(v));
+    }
+
+    /**
+     * Return a lower bound on the distance from vertex `v` to the destination of the current
+     * search, or 0 if it has none.
+     */
+    private double heuristic(int v) {
+        return target < 0 ? 0 : graph.distanceLowerBound(graph.vertex(v), graph.vertex(target));
+    }
+
+    /**
+     * Fill `path` with the edges leading from `src` to `dst`.
+     */
+    private void buildPath(int src, int dst) {
+        int[] heads = graph.adjacency().heads();
+        int length = 0;
+        for (int v = dst; v != src; v = previous[v]) {
+            length += 1;
+        }
+        if (path.length < length) {
+            path = new int[Math.max(length, 2 * path.length)];
+        }
+        int v = dst;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = lastEdge[v];
+            assert heads[lastEdge[v]] == v;
+            v = previous[v];
+        }
+        pathLength = length;
+    }
+}
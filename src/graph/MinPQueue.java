@@ -28,14 +28,14 @@ public class MinPQueue<KeyType> {
      * `heap.get(index.get(e)).key().equals(e)` if `e` is an element in the queue. Only maps
      * elements that are in the queue (`index.size() == heap.size()`).
      */
-    private final PacMap<KeyType, Integer> index;
+    private final ObjIntPacMap<KeyType> index;
 
 
     /**
      * Create an empty queue.
      */
     public MinPQueue() {
-        index = new ProbingPacMap<>();
+        index = new ObjIntPacMap<>();
         heap = new ArrayList<>();
     }
 
@@ -180,15 +180,14 @@ public class MinPQueue<KeyType> {
     }
 
     /**
-     * Change the priority associated with element `key` to `priority`.  Requires that `key` is
-     * contained in this queue.
+     * Change the priority associated with the element at index `i` of `heap` to `priority`.
+     * Requires `0 <= i < heap.size()`.
      */
-    private void update(KeyType key, double priority) {
-        assert index.containsKey(key);
-        int i = index.get(key);
+    private void update(int i, double priority) {
+        assert i >= 0 && i < heap.size();
         double currentPriority = heap.get(i).priority;
         if (currentPriority == priority) return;
-        heap.set(i, new Entry<>(key, priority));
+        heap.set(i, new Entry<>(heap.get(i).key, priority));
         if (priority>currentPriority){
             bubbleDown(i);
         }
@@ -202,10 +201,11 @@ public class MinPQueue<KeyType> {
      * Otherwise, add it to this queue with that priority.
      */
     public void addOrUpdate(KeyType key, double priority) {
-        if (!index.containsKey(key)) {
+        int i = index.getOrDefault(key, -1);
+        if (i < 0) {
             add(key, priority);
         } else {
-            update(key, priority);
+            update(i, priority);
         }
     }
 
@@ -223,7 +223,7 @@ public class MinPQueue<KeyType> {
 
         swap(0, heap.size()-1);
         heap.removeLast();
-        index.remove(key);
+        index.removeOrDefault(key, -1);
 
         //check for case that heap was originally only one element that is now removed
         if(!heap.isEmpty()){
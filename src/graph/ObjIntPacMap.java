@@ -0,0 +1,244 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A map with keys of type `K` and primitive int values, implemented using a hash table with linear
+ * probing.  The table's length is a power of two, so buckets are selected by masking a spread hash
+ * code rather than by division.  Keys and values are stored in parallel arrays, so putting,
+ * getting, and removing never allocate (except to grow the table), and overwriting a value updates
+ * it in place.  Removal shifts later entries of the same probe sequence back rather than leaving
+ * tombstones.
+ * <p>
+ * The `PacMap` methods box their values; the primitive overloads (`put(K, int)`,
+ * `getOrDefault()` and `removeOrDefault()`) should be preferred, as each probes the table only
+ * once.
+ */
+public class ObjIntPacMap<K> implements PacMap<K, Integer> {
+
+    /**
+     * The initial capacity of the hash table for new instances.  Must be a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The maximum load factor (inclusive) that is allowed in the hash table. If the load factor
+     * ever exceeds this maximum, then the hash table length is doubled.
+     */
+    public static final double MAX_LOAD_FACTOR = 0.5;
+
+    /**
+     * The key in each bucket of the hash table, or null for empty buckets.  If this map contains
+     * a key whose hash maps to index `i`, then that key is reachable via linear search starting at
+     * index `i` (wrapping around the array if necessary) without encountering null.
+     */
+    private Object[] keys;
+
+    /**
+     * The value associated with the key in each bucket of `keys` (meaningless for empty buckets).
+     */
+    private int[] values;
+
+    /**
+     * The number of keys in this map.
+     */
+    private int size;
+
+    /**
+     * Create a new empty map.
+     */
+    public ObjIntPacMap() {
+        keys = new Object[INITIAL_CAPACITY];
+        values = new int[INITIAL_CAPACITY];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the index of the first bucket that `key` may be found in.
+     */
+    private int home(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (keys.length - 1);
+    }
+
+    /**
+     * Return the index of the bucket containing `key`, or `-(i + 1)` if it is absent, where `i`
+     * is the index of the empty bucket where it would be inserted.
+     */
+    private int find(Object key) {
+        assert key != null;
+        int mask = keys.length - 1;
+        for (int i = home(key); ; i = (i + 1) & mask) {
+            Object k = keys[i];
+            if (k == null) {
+                return -(i + 1);
+            }
+            if (k == key || k.equals(key)) {
+                return i;
+            }
+        }
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    public Integer get(K key) {
+        int i = find(key);
+        if (i < 0) {
+            throw new NoSuchElementException();
+        }
+        return values[i];
+    }
+
+    /**
+     * Return the value associated with `key`, or `defaultValue` if there is none.  Requires `key`
+     * is not null.
+     */
+    public int getOrDefault(K key, int defaultValue) {
+        int i = find(key);
+        return i >= 0 ? values[i] : defaultValue;
+    }
+
+    @Override
+    public void put(K key, Integer value) {
+        put(key, value.intValue());
+    }
+
+    /**
+     * Associates the given `value` to the given `key`.  Requires `key` is not null.
+     */
+    public void put(K key, int value) {
+        int i = find(key);
+        if (i >= 0) {
+            values[i] = value;
+            return;
+        }
+        i = -(i + 1);
+        keys[i] = key;
+        values[i] = value;
+        size += 1;
+        if (size > MAX_LOAD_FACTOR * keys.length) {
+            resize();
+        }
+    }
+
+    @Override
+    public Integer remove(K key) {
+        int i = find(key);
+        if (i < 0) {
+            throw new NoSuchElementException();
+        }
+        int value = values[i];
+        removeAt(i);
+        return value;
+    }
+
+    /**
+     * Remove the value associated with `key` and return it, or return `defaultValue` if there is
+     * none.  Requires `key` is not null.
+     */
+    public int removeOrDefault(K key, int defaultValue) {
+        int i = find(key);
+        if (i < 0) {
+            return defaultValue;
+        }
+        int value = values[i];
+        removeAt(i);
+        return value;
+    }
+
+    /**
+     * Remove all keys from this map, keeping the current table size.
+     */
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    /**
+     * Empty bucket `i`, then move back any later entries of the same probe sequence that would
+     * otherwise become unreachable.
+     */
+    private void removeAt(int i) {
+        int mask = keys.length - 1;
+        int hole = i;
+        for (int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            // An entry at `j` may fill the hole only if its home is not cyclically in (hole, j]
+            int h = home(keys[j]);
+            if (((j - h) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = null;
+        size -= 1;
+    }
+
+    /**
+     * Double the length of the hash table and reinsert all entries.
+     */
+    private void resize() {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new Object[2 * oldKeys.length];
+        values = new int[2 * oldKeys.length];
+        int mask = keys.length - 1;
+        for (int k = 0; k < oldKeys.length; k++) {
+            if (oldKeys[k] != null) {
+                int i = home(oldKeys[k]);
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[k];
+                values[i] = oldValues[k];
+            }
+        }
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return new Iterator<>() {
+            /**
+             * The index of the bucket containing the next key to yield, or `keys.length` if all
+             * keys have been yielded.
+             */
+            private int iNext = findNext(0);
+
+            /**
+             * Return the index of the first non-empty bucket at or after `i`, or `keys.length`.
+             */
+            private int findNext(int i) {
+                while (i < keys.length && keys[i] == null) {
+                    i += 1;
+                }
+                return i;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return iNext < keys.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public K next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                K ans = (K) keys[iNext];
+                iNext = findNext(iNext + 1);
+                return ans;
+            }
+        };
+    }
+}
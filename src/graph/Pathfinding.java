@@ -1,9 +1,12 @@
 package graph;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 
 public class Pathfinding {
 
@@ -14,6 +17,86 @@ public class Pathfinding {
 
     }
 
+    /**
+     * The lengths of the shortest non-backtracking paths to one destination vertex from every
+     * vertex, where the first edge of a path from a vertex may not backtrack the edge that was used
+     * to arrive there.  Such a field is computed by a single search (see `distanceField()`), after
+     * which any number of actors heading to the same destination can be steered by it.
+     */
+    public static final class DistanceField<V extends Vertex<E>, E extends WeightedEdge<V>> {
+
+        /**
+         * The destination of all paths in this field.
+         */
+        private final V dst;
+
+        /**
+         * For each edge `e` from which `dst` can be reached, the length of the shortest
+         * non-backtracking path to `dst` from `e.head()` whose first edge does not backtrack `e`.
+         */
+        private final Map<E, Double> remaining;
+
+        private DistanceField(V dst, Map<E, Double> remaining) {
+            this.dst = dst;
+            this.remaining = remaining;
+        }
+
+        /**
+         * Return the destination vertex of this field.
+         */
+        public V dst() {
+            return dst;
+        }
+
+        /**
+         * Return the first edge of a shortest non-backtracking path from `v` to `dst()` whose first
+         * edge does not backtrack `previousEdge` (if it is not null), or null if `v` is `dst()` or
+         * there is no such path.  Ties are broken in favor of the edge that comes first in
+         * `v.outgoingEdges()`.  Requires that if `previousEdge != null` then
+         * `previousEdge.head().equals(v)`.
+         */
+        public E nextEdge(V v, E previousEdge) {
+            assert previousEdge == null || previousEdge.head().equals(v);
+            if (v.equals(dst)) {
+                return null;
+            }
+            E best = null;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            for (E e : v.outgoingEdges()) {
+                Double rest = remaining.get(e);
+                if (rest == null || (previousEdge != null && previousEdge.tail().equals(e.head()))) {
+                    continue;
+                }
+                if (e.weight() + rest < bestDistance) {
+                    best = e;
+                    bestDistance = e.weight() + rest;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Return the list of edges obtained by following `nextEdge()` from `v` (after arriving via
+         * `previousEdge`) until reaching `dst()`, or null if there is no non-backtracking path to
+         * `dst()`.  This is a shortest non-backtracking path, and each of its suffixes is the path
+         * that would be returned from that suffix's first vertex.  Requires that if
+         * `previousEdge != null` then `previousEdge.head().equals(v)`.
+         */
+        public List<E> pathFrom(V v, E previousEdge) {
+            List<E> ret = new ArrayList<>();
+            E e = previousEdge;
+            while (!v.equals(dst)) {
+                e = nextEdge(v, e);
+                if (e == null) {
+                    return null;
+                }
+                ret.add(e);
+                v = e.head();
+            }
+            return ret;
+        }
+    }
+
     /**
      * Returns a list of `E` edges comprising the shortest non-backtracking simple path from vertex
      * `src` to vertex `dst`. A non-backtracking path never contains two consecutive edges between
@@ -24,9 +107,39 @@ public class Pathfinding {
      */
     public static <V extends Vertex<E>, E extends WeightedEdge<V>> List<E> shortestNonBacktrackingPath(
             V src, V dst, E previousEdge) {
+        return shortestNonBacktrackingPath(src, dst, previousEdge, v -> 0);
+    }
 
-        Map<V, PathEnd<E>> paths = pathInfo(src, previousEdge);
-        return paths.containsKey(dst) ? pathTo(paths, src, dst) : null;
+    /**
+     * Returns the same path as `shortestNonBacktrackingPath(src, dst, previousEdge)`, found by an
+     * A* search that is guided towards `dst` by `heuristic` and stops as soon as `dst` is settled.
+     * Requires that `heuristic` is consistent: it is 0 at `dst`, and for every edge `e`,
+     * `heuristic(e.tail()) <= e.weight() + heuristic(e.head())` (see
+     * `MazeGraph.distanceLowerBound()`).  Also requires that if `previousEdge != null` then
+     * `previousEdge.head().equals(src)`.
+     */
+    public static <V extends Vertex<E>, E extends WeightedEdge<V>> List<E> shortestNonBacktrackingPath(
+            V src, V dst, E previousEdge, ToDoubleFunction<? super V> heuristic) {
+
+        Map<V, PathEnd<E>> paths = new HashMap<>();
+        V found = search(src, previousEdge, dst::equals, heuristic, paths);
+        return found == null ? null : pathTo(paths, src, dst);
+    }
+
+    /**
+     * Returns a shortest non-backtracking path (as documented by `shortestNonBacktrackingPath()`)
+     * from `src` to whichever vertex satisfying `isTarget` is nearest to `src`, found by a search
+     * that stops as soon as such a vertex is settled.  If `src` itself satisfies `isTarget`, the
+     * path is empty.  If no such vertex can be reached, null is returned.  Ties are broken in the
+     * same way as by `pathInfo()`.  Requires that if `previousEdge != null` then
+     * `previousEdge.head().equals(src)`.
+     */
+    public static <V extends Vertex<E>, E extends WeightedEdge<V>> List<E>
+            shortestNonBacktrackingPathToAny(V src, E previousEdge, Predicate<? super V> isTarget) {
+
+        Map<V, PathEnd<E>> paths = new HashMap<>();
+        V found = search(src, previousEdge, isTarget, v -> 0, paths);
+        return found == null ? null : pathTo(paths, src, found);
     }
 
     /**
@@ -35,24 +148,45 @@ public class Pathfinding {
      * shortest non-backtracking simple path from `src` to that vertex. A non-backtracking path
      * never contains two consecutive edges between the same two vertices (e.g., v -> w -> v). As a
      * part of this requirement, the first edge in the returned path cannot backtrack `previousEdge`
-     * (when `previousEdge` is not null). Requires that if `previousEdge != null` then
-     * `previousEdge.head().equals(src)`.
+     * (when `previousEdge` is not null). Of several shortest paths to a vertex, the one whose last
+     * edge leaves the vertex nearest to `src` is summarized. Requires that if
+     * `previousEdge != null` then `previousEdge.head().equals(src)`.
      */
     static <V extends Vertex<E>, E extends WeightedEdge<V>> Map<V, PathEnd<E>> pathInfo(V src,
             E previousEdge) {
+        Map<V, PathEnd<E>> pathInfo = new HashMap<>();
+        search(src, previousEdge, v -> false, v -> 0, pathInfo);
+        return pathInfo;
+    }
 
-        assert previousEdge == null || previousEdge.head().equals(src);
+    /**
+     * Fill `pathInfo` with the path information of `pathInfo(src, previousEdge)`, except that
+     * vertices are prioritized by their distance plus `heuristic`, and the search stops as soon as
+     * a vertex satisfying `isDst` is settled (so `pathInfo` is then only guaranteed to summarize
+     * the shortest path to that vertex).  Return the vertex that stopped the search, or null if
+     * it ran to completion.  Ties are broken as documented by `pathInfo()`; since a consistent
+     * heuristic still settles the nearer of two such vertices first, the chosen paths do not depend
+     * on `heuristic`.  Requires that `pathInfo` is empty and that `heuristic` is consistent with
+     * every vertex satisfying `isDst` (see `shortestNonBacktrackingPath()`).
+     */
+    private static <V extends Vertex<E>, E extends WeightedEdge<V>> V search(V src,
+            E previousEdge, Predicate<? super V> isDst, ToDoubleFunction<? super V> heuristic,
+            Map<V, PathEnd<E>> pathInfo) {
 
-        // Associate vertex labels with info about the shortest-known path from `start` to that
-        // vertex.  Populated as vertices are discovered (not as they are settled).
-        Map<V, PathEnd<E>> pathInfo = new HashMap<>();
+        assert previousEdge == null || previousEdge.head().equals(src);
+        assert pathInfo.isEmpty();
 
-        MinPQueue<V> frontier = new MinPQueue<>();
+        // `pathInfo` associates vertex labels with info about the shortest-known path from `start`
+        // to that vertex.  Populated as vertices are discovered (not as they are settled).
+        IndexedMinPQueue<V> frontier = new IndexedMinPQueue<>();
         pathInfo.put(src, new PathEnd<>(0, previousEdge));
-        frontier.addOrUpdate(src, 0);
+        frontier.addOrUpdate(src, heuristic.applyAsDouble(src));
 
         while (!frontier.isEmpty()) {
             V vertex = frontier.remove(); //takes vertex on frontier with lowest priority (closest)
+            if (isDst.test(vertex)) {
+                return vertex;
+            }
             PathEnd<E> end = pathInfo.get(vertex); //gets path info of lowest priority vertex
 
             for (E e : vertex.outgoingEdges()) {
@@ -65,17 +199,68 @@ public class Pathfinding {
                 double newDistance = end.distance + e.weight();
 
                 //If pathInfo does not contain this vertex, or the new distance is shorter than the
-                // current distance mapped to this vertex, then add/update the shortest path to this vertex
-                if (!pathInfo.containsKey(neighbor)
-                        || pathInfo.get(neighbor).distance > newDistance) {
+                // current distance mapped to this vertex (or equal, but via a vertex nearer `src`),
+                // then add/update the shortest path to this vertex
+                PathEnd<E> known = pathInfo.get(neighbor);
+                if (known == null || known.distance > newDistance
+                        || (known.distance == newDistance
+                        && pathInfo.get(known.lastEdge().tail()).distance > end.distance)) {
                     pathInfo.put(neighbor, new PathEnd<>(newDistance, e));
-                    frontier.addOrUpdate(neighbor, newDistance);
+                    frontier.addOrUpdate(neighbor,
+                            newDistance + heuristic.applyAsDouble(neighbor));
                 }
 
             }
         }
 
-        return pathInfo;
+        return null;
+    }
+
+    /**
+     * Returns the field of shortest non-backtracking paths to `dst` from every vertex in
+     * `vertices`, which must contain every vertex that is adjacent to one of its elements.  The
+     * field is found by a single search backwards from `dst`, in which the frontier consists of
+     * edges (standing for an actor that has just traversed that edge), so, unlike `pathInfo()`,
+     * the backtracking constraint is enforced exactly against whichever edge an actor arrives by.
+     */
+    public static <V extends Vertex<E>, E extends WeightedEdge<V>> DistanceField<V, E> distanceField(
+            Iterable<V> vertices, V dst) {
+
+        // The edges arriving at each vertex
+        Map<V, List<E>> incoming = new HashMap<>();
+        for (V v : vertices) {
+            for (E e : v.outgoingEdges()) {
+                incoming.computeIfAbsent(e.head(), k -> new ArrayList<>()).add(e);
+            }
+        }
+
+        // The length of the shortest-known path to `dst` after traversing each discovered edge.
+        //  Populated as edges are discovered (not as they are settled).
+        Map<E, Double> remaining = new HashMap<>();
+        IndexedMinPQueue<E> frontier = new IndexedMinPQueue<>();
+        for (E e : incoming.getOrDefault(dst, List.of())) {
+            remaining.put(e, 0.0);
+            frontier.addOrUpdate(e, 0);
+        }
+
+        while (!frontier.isEmpty()) {
+            // `next` is the first edge of a shortest path from any edge arriving at its tail
+            //  (except for the one that it would backtrack)
+            E next = frontier.remove();
+            double newDistance = remaining.get(next) + next.weight();
+            for (E e : incoming.getOrDefault(next.tail(), List.of())) {
+                if (e.tail().equals(next.head())) {
+                    continue;
+                }
+                Double known = remaining.get(e);
+                if (known == null || known > newDistance) {
+                    remaining.put(e, newDistance);
+                    frontier.addOrUpdate(e, newDistance);
+                }
+            }
+        }
+
+        return new DistanceField<>(dst, remaining);
     }
 
     /**
@@ -90,11 +275,14 @@ public class Pathfinding {
 
         V currentV = dst;
 
+        // Collect edges from `dst` back to `src`, then reverse them (inserting at the front of an
+        //  ArrayList would take quadratic time)
         while (!currentV.equals(src)) {
             E prevEdge = pathInfo.get(currentV).lastEdge;
             currentV = prevEdge.tail();
-            ret.add(0, prevEdge);
+            ret.add(prevEdge);
         }
+        Collections.reverse(ret);
         return ret;
 
     }
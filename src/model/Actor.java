@@ -73,6 +73,25 @@ public abstract class Actor {
     }
 
 
+    /**
+     * The mutable state of an actor at some moment, as captured by `snapshot()`.  Subclasses with
+     * state beyond their location capture it in their own kinds of snapshot.
+     */
+    public interface Snapshot {
+
+        /**
+         * Return the location of the actor when this snapshot was taken.
+         */
+        Location location();
+    }
+
+    /**
+     * The snapshot of an actor whose only mutable state is its location.
+     */
+    private record LocationSnapshot(Location location) implements Snapshot {
+
+    }
+
     /**
      * The game model with which this actor is associated.
      */
@@ -153,6 +172,22 @@ public abstract class Actor {
 
 
 
+    /**
+     * Return a snapshot of this actor's current state, which may later be restored (to this actor
+     * or to the corresponding actor of a copy of its model) with `restore()`.
+     */
+    public Snapshot snapshot() {
+        return new LocationSnapshot(location);
+    }
+
+    /**
+     * Return this actor to the state captured in `snapshot`, which must have been taken from an
+     * actor of the same class.
+     */
+    public void restore(Snapshot snapshot) {
+        location = snapshot.location();
+    }
+
     /* ****************************************************************
      * Methods for updating this actor's location                     *
      **************************************************************** */
@@ -32,7 +32,7 @@ public class Clyde extends Ghost{
     protected MazeVertex target() {
         if(state == GhostState.CHASE){
             MazeVertex pac = model.pacMann().location().nearestVertex();
-            MazeVertex clyde = model.clyde().location().nearestVertex();
+            MazeVertex clyde = location().nearestVertex();
             int pacX = pac.loc().i();
             int pacY = pac.loc().j();
             int clydeX = clyde.loc().i();
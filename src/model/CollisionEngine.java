@@ -0,0 +1,259 @@
+package model;
+
+import graph.MazeGraph;
+import graph.MazeGraph.Direction;
+import graph.MazeGraph.MazeEdge;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Predicts and detects collisions between actors, without allocating once its arrays have grown to
+ * fit the game's actors.  Two actors can only collide if they are traversing the same undirected
+ * edge or are both standing on the same vertex, so actors are bucketed by edge and by vertex, and
+ * only pairs sharing a bucket are examined; the cost of a query is therefore linear in the number
+ * of actors plus the number of pairs sharing a bucket, rather than quadratic.  The actors in each
+ * bucket are kept as a linked list threaded through per-actor arrays, and the head of each list is
+ * stamped with the epoch of the query that wrote it, so nothing needs to be cleared between
+ * queries.
+ */
+final class CollisionEngine {
+
+    /**
+     * The graph whose edges actors are traversing.
+     */
+    private final MazeGraph graph;
+
+    /**
+     * The epoch of the current query.  An entry of `edgeFirst` is only meaningful if the
+     * corresponding entry of `edgeEpoch` equals `epoch`.
+     */
+    private int epoch;
+
+    /**
+     * The epoch in which each undirected edge (indexed by the smaller of its two directed edges'
+     * CSR indices) was last occupied.
+     */
+    private final int[] edgeEpoch;
+
+    /**
+     * The index of the most recently seen actor on each undirected edge.
+     */
+    private final int[] edgeFirst;
+
+    /**
+     * The index of the last actor added to each undirected edge's bucket by `detectCollisions()`.
+     */
+    private final int[] edgeLast;
+
+    /**
+     * The epoch in which each vertex (by id) was last occupied by an actor standing on it.
+     */
+    private final int[] vertexEpoch;
+
+    /**
+     * The index of the first actor added to each vertex's bucket by `detectCollisions()`.
+     */
+    private final int[] vertexFirst;
+
+    /**
+     * The index of the last actor added to each vertex's bucket by `detectCollisions()`.
+     */
+    private final int[] vertexLast;
+
+    /**
+     * The index of the previously seen actor on the same undirected edge as each actor, or -1.  In
+     * `detectCollisions()`, the index of the next actor (in increasing order) instead.
+     */
+    private int[] nextOnEdge;
+
+    /**
+     * The index of the next actor (in increasing order) standing on the same vertex as each actor,
+     * or -1.
+     */
+    private int[] nextAtVertex;
+
+    /**
+     * The indices of the pairs of actors found to be colliding by the last call to
+     * `detectCollisions()`, the `k`th pair being at positions `2*k` and `2*k + 1`.
+     */
+    private int[] colliding;
+
+    /**
+     * The position of each actor along its undirected edge, measured from the end that RIGHT and
+     * DOWN edges leave from.
+     */
+    private double[] position;
+
+    /**
+     * The velocity of each actor along its undirected edge, positive in the RIGHT and DOWN
+     * directions.
+     */
+    private double[] velocity;
+
+    /**
+     * Create an engine for actors traversing the edges of `graph`.
+     */
+    CollisionEngine(MazeGraph graph) {
+        this.graph = graph;
+        int numEdges = graph.adjacency().heads().length;
+        edgeEpoch = new int[numEdges];
+        edgeFirst = new int[numEdges];
+        edgeLast = new int[numEdges];
+        int numVertices = graph.adjacency().offsets().length - 1;
+        vertexEpoch = new int[numVertices];
+        vertexFirst = new int[numVertices];
+        vertexLast = new int[numVertices];
+        nextOnEdge = new int[0];
+        nextAtVertex = new int[0];
+        colliding = new int[0];
+        position = new double[0];
+        velocity = new double[0];
+    }
+
+    /**
+     * Return the earliest timestep at which two of `actors` will collide, given their current
+     * trajectories.  Actors may cross each other along an edge or may meet at a vertex. Returns
+     * POSITIVE_INFINITY if no actors will collide along their current edge trajectories.
+     */
+    double nextCollisionTime(List<Actor> actors) {
+        int n = actors.size();
+        beginQuery(n);
+
+        int[] reverses = graph.adjacency().reverses();
+        double minDt = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            Actor a = actors.get(i);
+            MazeEdge e = a.location().edge();
+            int k = graph.edgeIndex(e);
+            int ue = Math.min(k, reverses[k]);
+
+            if (e.direction() == Direction.RIGHT || e.direction() == Direction.DOWN) {
+                position[i] = a.location().progress();
+                velocity[i] = a.edgeSpeed();
+            } else {
+                position[i] = 1 - a.location().progress();
+                velocity[i] = -a.edgeSpeed();
+            }
+
+            // Compute the intersection time between this actor and any already-seen actor
+            //  traversing the same edge
+            nextOnEdge[i] = edgeEpoch[ue] == epoch ? edgeFirst[ue] : -1;
+            for (int j = nextOnEdge[i]; j >= 0; j = nextOnEdge[j]) {
+                double s = (position[i] - position[j]) / (velocity[j] - velocity[i]);
+                // Note: inequality skips NaNs
+                if (s > 0 && s < minDt) {
+                    minDt = s;
+                }
+            }
+            edgeEpoch[ue] = epoch;
+            edgeFirst[ue] = i;
+        }
+        return minDt;
+    }
+
+    /**
+     * Find every pair of `actors` whose current locations collide, and return the number of such
+     * pairs.  The pairs are then available from `collidingFirst()` and `collidingSecond()`, in
+     * increasing order of their first and then their second actor's index (the order in which a
+     * nested loop over all pairs would encounter them).
+     */
+    int detectCollisions(List<Actor> actors) {
+        int n = actors.size();
+        beginQuery(n);
+
+        // Bucket the actors in increasing order, appending to each bucket's list so that it is
+        //  sorted
+        int[] reverses = graph.adjacency().reverses();
+        for (int i = 0; i < n; i++) {
+            Actor.Location loc = actors.get(i).location();
+            int k = graph.edgeIndex(loc.edge());
+            int ue = Math.min(k, reverses[k]);
+            nextOnEdge[i] = -1;
+            if (edgeEpoch[ue] == epoch) {
+                nextOnEdge[edgeLast[ue]] = i;
+            } else {
+                edgeEpoch[ue] = epoch;
+                edgeFirst[ue] = i;
+            }
+            edgeLast[ue] = i;
+
+            nextAtVertex[i] = -1;
+            if (loc.atVertex()) {
+                int v = loc.nearestVertex().id();
+                if (vertexEpoch[v] == epoch) {
+                    nextAtVertex[vertexLast[v]] = i;
+                } else {
+                    vertexEpoch[v] = epoch;
+                    vertexFirst[v] = i;
+                }
+                vertexLast[v] = i;
+            }
+        }
+
+        // Each actor's later bucket-mates follow it in its buckets' lists, so merging the two lists
+        //  yields its candidate partners in increasing order
+        int numColliding = 0;
+        for (int i = 0; i < n; i++) {
+            Actor.Location loc = actors.get(i).location();
+            int j = nextOnEdge[i];
+            int w = nextAtVertex[i];
+            while (j >= 0 || w >= 0) {
+                int m;
+                if (w < 0 || (j >= 0 && j < w)) {
+                    m = j;
+                    j = nextOnEdge[j];
+                } else {
+                    if (j == w) {
+                        j = nextOnEdge[j];
+                    }
+                    m = w;
+                    w = nextAtVertex[w];
+                }
+                if (loc.collidesWith(actors.get(m).location())) {
+                    if (2 * numColliding == colliding.length) {
+                        colliding = Arrays.copyOf(colliding, Math.max(8, 2 * colliding.length));
+                    }
+                    colliding[2 * numColliding] = i;
+                    colliding[2 * numColliding + 1] = m;
+                    numColliding += 1;
+                }
+            }
+        }
+        return numColliding;
+    }
+
+    /**
+     * Return the index of the first actor of the `k`th pair found by the last call to
+     * `detectCollisions()`.
+     */
+    int collidingFirst(int k) {
+        return colliding[2 * k];
+    }
+
+    /**
+     * Return the index of the second actor of the `k`th pair found by the last call to
+     * `detectCollisions()`.
+     */
+    int collidingSecond(int k) {
+        return colliding[2 * k + 1];
+    }
+
+    /**
+     * Grow the per-actor arrays to fit `n` actors if necessary, and advance to a new epoch.
+     */
+    private void beginQuery(int n) {
+        if (nextOnEdge.length < n) {
+            nextOnEdge = new int[n];
+            nextAtVertex = new int[n];
+            position = new double[n];
+            velocity = new double[n];
+        }
+        epoch += 1;
+        if (epoch == 0) {
+            // The counter wrapped around, so stale stamps could be mistaken for current ones
+            Arrays.fill(edgeEpoch, 0);
+            Arrays.fill(vertexEpoch, 0);
+            epoch = 1;
+        }
+    }
+}
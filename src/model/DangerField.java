@@ -0,0 +1,80 @@
+package model;
+
+import graph.IntMinPQueue;
+import graph.MazeGraph;
+import graph.MazeGraph.Adjacency;
+import graph.MazeGraph.MazeVertex;
+import java.util.Arrays;
+
+/**
+ * The length of the shortest path through a `MazeGraph` to each vertex from the nearest of a set
+ * of source vertices (e.g., those that chasing ghosts are nearest to), computed by a single
+ * multi-source Dijkstra search over the graph's CSR view.  Once computed, the distance from the
+ * nearest source to any vertex is an O(1) lookup.  The arrays are reused by each computation.
+ */
+final class DangerField {
+
+    /**
+     * The graph whose paths are measured.
+     */
+    private final MazeGraph graph;
+
+    /**
+     * The length of the shortest path from the nearest source to each vertex (by id), or
+     * POSITIVE_INFINITY if it cannot be reached from any source.
+     */
+    private final double[] distance;
+
+    /**
+     * The discovered but unsettled vertices, prioritized by `distance`.
+     */
+    private final IntMinPQueue frontier;
+
+    /**
+     * Create a field over `graph` in which no vertex is reachable.
+     */
+    DangerField(MazeGraph graph) {
+        this.graph = graph;
+        distance = new double[graph.vertexCount()];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        frontier = new IntMinPQueue(graph.vertexCount());
+    }
+
+    /**
+     * Recompute this field for the vertices with ids `sources[0..numSources)` (which may contain
+     * duplicates).
+     */
+    void compute(int[] sources, int numSources) {
+        Adjacency adj = graph.adjacency();
+        int[] offsets = adj.offsets();
+        int[] heads = adj.heads();
+        double[] weights = adj.weights();
+
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        frontier.clear();
+        for (int k = 0; k < numSources; k++) {
+            distance[sources[k]] = 0;
+            frontier.addOrUpdate(sources[k], 0);
+        }
+
+        while (!frontier.isEmpty()) {
+            int v = frontier.remove();
+            double d = distance[v];
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                int w = heads[k];
+                if (distance[w] > d + weights[k]) {
+                    distance[w] = d + weights[k];
+                    frontier.addOrUpdate(w, distance[w]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the length of the shortest path from the nearest source to `v`, or POSITIVE_INFINITY
+     * if there is no source from which `v` can be reached.
+     */
+    double distanceTo(MazeVertex v) {
+        return distance[v.id()];
+    }
+}
@@ -0,0 +1,397 @@
+package model;
+
+import graph.IntMinPQueue;
+import graph.MazeGraph;
+import graph.MazeGraph.Direction;
+import graph.MazeGraph.MazeEdge;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The event queue of `GameModel`'s event-driven simulation mode.  It keeps the (absolute) game
+ * time of each actor's next vertex arrival or state timer expiry, and of the earliest predicted
+ * collision between PacMann and a ghost on the same undirected edge.  Since actors move at
+ * constant speeds between events, these predictions stay valid until an actor's trajectory
+ * changes, so only the actors that the model reports as affected (see `invalidate()`) are
+ * rescheduled, and only their collisions with the actors on their old and new edges are
+ * predicted again.  Collisions between ghosts are ignored by the game, so they are not events.
+ */
+final class EventScheduler {
+
+    /**
+     * The index of PacMann among the actors (as in `GameModel`).
+     */
+    private static final int PACMANN = 0;
+
+    /**
+     * The graph whose edges actors are traversing.
+     */
+    private final MazeGraph graph;
+
+    /**
+     * The actors whose events are scheduled, which are identified by their index in this list.
+     */
+    private final List<Actor> actors;
+
+    /**
+     * The time of each actor's next vertex arrival or state timer expiry.
+     */
+    private final IntMinPQueue arrivals;
+
+    /**
+     * The time of each actor's earliest predicted collision with PacMann (or, for PacMann, with
+     * any ghost), or POSITIVE_INFINITY if none is predicted.
+     */
+    private final IntMinPQueue collisions;
+
+    /**
+     * Whether each actor's events must be rescheduled.
+     */
+    private final boolean[] invalid;
+
+    /**
+     * The indices of the actors whose events must be rescheduled.  Only the first `numInvalid`
+     * entries are meaningful.
+     */
+    private final int[] invalidActors;
+
+    /**
+     * The number of actors whose events must be rescheduled.
+     */
+    private int numInvalid;
+
+    /**
+     * The undirected edge (identified by the smaller of its two directed edges' CSR indices) that
+     * each actor was on when it was last scheduled, or -1 if it has not been scheduled.
+     */
+    private final int[] actorEdge;
+
+    /**
+     * The index of one actor on each undirected edge, or -1 if there is none.  The actors on an
+     * edge form a doubly-linked list threaded through `nextOnEdge` and `prevOnEdge`.
+     */
+    private final int[] edgeFirst;
+
+    /**
+     * The index of the next actor on the same undirected edge as each actor, or -1.
+     */
+    private final int[] nextOnEdge;
+
+    /**
+     * The index of the previous actor on the same undirected edge as each actor, or -1.
+     */
+    private final int[] prevOnEdge;
+
+    /**
+     * The undirected edges whose actors' collisions must be predicted again.  Only the first
+     * `numStaleEdges` entries are meaningful.
+     */
+    private final int[] staleEdges;
+
+    /**
+     * The number of undirected edges whose actors' collisions must be predicted again.
+     */
+    private int numStaleEdges;
+
+    /**
+     * The indices of the ghosts found by the last call to `detectContacts()`, in increasing order.
+     * Only the first `numContacts` entries are meaningful.
+     */
+    private final int[] contacts;
+
+    /**
+     * The number of ghosts found by the last call to `detectContacts()`.
+     */
+    private int numContacts;
+
+    /**
+     * Create a scheduler for `actors` traversing the edges of `graph`, with every actor initially
+     * invalid.  The list of actors must not change afterwards.
+     */
+    EventScheduler(MazeGraph graph, List<Actor> actors) {
+        this.graph = graph;
+        this.actors = actors;
+        int n = actors.size();
+        arrivals = new IntMinPQueue(n);
+        collisions = new IntMinPQueue(n);
+        invalid = new boolean[n];
+        invalidActors = new int[n];
+        actorEdge = new int[n];
+        Arrays.fill(actorEdge, -1);
+        nextOnEdge = new int[n];
+        prevOnEdge = new int[n];
+        edgeFirst = new int[graph.adjacency().heads().length];
+        Arrays.fill(edgeFirst, -1);
+        staleEdges = new int[2 * n];
+        contacts = new int[2 * n];
+        invalidateAll();
+    }
+
+    /**
+     * Record that the trajectory or state of the actor with index `i` may have changed, so its
+     * events must be rescheduled.
+     */
+    void invalidate(int i) {
+        if (!invalid[i]) {
+            invalid[i] = true;
+            invalidActors[numInvalid++] = i;
+        }
+    }
+
+    /**
+     * Record that the trajectories or states of all actors may have changed.
+     */
+    void invalidateAll() {
+        for (int i = 0; i < actors.size(); i++) {
+            invalidate(i);
+        }
+    }
+
+    /**
+     * Return the time remaining until the earliest scheduled event, given that the current time is
+     * `now`, or POSITIVE_INFINITY if there is none.  Requires that no actor is invalid.
+     * <p>
+     * The time is recomputed from the current state of the actors involved (as in `GameModel`'s
+     * STEPPED mode) rather than by subtracting `now` from the event's scheduled time, so that, for
+     * example, a wait timer expires exactly at the end of the step rather than a rounding error
+     * before it.  If that differs from the scheduled time (because the prediction was made at an
+     * earlier step, so was rounded differently, or because the event was missed by a rounding
+     * error), the event is rescheduled and the next earliest one is considered instead.
+     */
+    double timeToNextEvent(double now) {
+        assert numInvalid == 0;
+        double dt = Double.POSITIVE_INFINITY;
+        while (!arrivals.isEmpty() && arrivals.minPriority() < Double.POSITIVE_INFINITY) {
+            int i = arrivals.peek();
+            double fresh = actors.get(i).maxPropagationTime();
+            if (now + fresh == arrivals.minPriority()) {
+                dt = fresh;
+                break;
+            }
+            arrivals.addOrUpdate(i, now + fresh);
+        }
+        while (!collisions.isEmpty() && collisions.minPriority() < Double.POSITIVE_INFINITY) {
+            int i = collisions.peek();
+            double fresh = timeToCollision(i, actorEdge[i]);
+            if (now + fresh == collisions.minPriority()) {
+                dt = Math.min(dt, fresh);
+                break;
+            }
+            collisions.addOrUpdate(i, now + fresh);
+        }
+        return dt;
+    }
+
+    /**
+     * Invalidate every actor with an event scheduled at or before `now`.
+     */
+    void fire(double now) {
+        while (!arrivals.isEmpty() && arrivals.minPriority() <= now) {
+            invalidate(arrivals.remove());
+        }
+        while (!collisions.isEmpty() && collisions.minPriority() <= now) {
+            invalidate(collisions.remove());
+        }
+    }
+
+    /**
+     * Schedule the events of every invalid actor, given that the current time is `now`, and
+     * predict the collisions of all actors sharing an edge with one of them.
+     */
+    void reschedule(double now) {
+        int[] reverses = graph.adjacency().reverses();
+        numStaleEdges = 0;
+        for (int k = 0; k < numInvalid; k++) {
+            int i = invalidActors[k];
+            invalid[i] = false;
+            Actor a = actors.get(i);
+            arrivals.addOrUpdate(i, now + a.maxPropagationTime());
+
+            int e = graph.edgeIndex(a.location().edge());
+            int ue = Math.min(e, reverses[e]);
+            if (ue != actorEdge[i]) {
+                if (actorEdge[i] >= 0) {
+                    markStale(actorEdge[i]);
+                    unlink(i);
+                }
+                link(i, ue);
+            }
+            markStale(ue);
+        }
+        numInvalid = 0;
+
+        for (int k = 0; k < numStaleEdges; k++) {
+            predictCollisions(staleEdges[k], now);
+        }
+    }
+
+    /**
+     * Find the ghosts whose current locations collide with PacMann's (as determined by
+     * `Actor.Location.collidesWith()`), and return their number.  Their indices are then available
+     * from `contact()` in increasing order.  Requires that the events due now have been fired.
+     * <p>
+     * Only the ghosts on PacMann's undirected edge, or on another edge at the vertex PacMann is
+     * standing on, are examined, along with the ghosts whose events have fired since they were
+     * scheduled (since they may have left the edge they were scheduled on, e.g. on leaving the
+     * ghost pen).
+     */
+    int detectContacts() {
+        Actor.Location loc = actors.get(PACMANN).location();
+        int[] reverses = graph.adjacency().reverses();
+        int e = graph.edgeIndex(loc.edge());
+        int ue = Math.min(e, reverses[e]);
+        numContacts = 0;
+        addContacts(ue, loc);
+        if (loc.atVertex()) {
+            int[] offsets = graph.adjacency().offsets();
+            int v = loc.nearestVertex().id();
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                if (Math.min(k, reverses[k]) != ue) {
+                    addContacts(Math.min(k, reverses[k]), loc);
+                }
+            }
+        }
+        for (int k = 0; k < numInvalid; k++) {
+            addContact(invalidActors[k], loc);
+        }
+
+        // A ghost may have been found both on an edge and as an invalid actor
+        Arrays.sort(contacts, 0, numContacts);
+        int numDistinct = 0;
+        for (int k = 0; k < numContacts; k++) {
+            if (numDistinct == 0 || contacts[numDistinct - 1] != contacts[k]) {
+                contacts[numDistinct++] = contacts[k];
+            }
+        }
+        numContacts = numDistinct;
+        return numContacts;
+    }
+
+    /**
+     * Return the index of the `k`th ghost found by the last call to `detectContacts()`.
+     */
+    int contact(int k) {
+        return contacts[k];
+    }
+
+    /**
+     * Record each ghost on undirected edge `ue` whose location collides with PacMann's location
+     * `loc` as a contact.
+     */
+    private void addContacts(int ue, Actor.Location loc) {
+        for (int j = edgeFirst[ue]; j >= 0; j = nextOnEdge[j]) {
+            addContact(j, loc);
+        }
+    }
+
+    /**
+     * Record the actor with index `j` as a contact if it is a ghost whose location collides with
+     * PacMann's location `loc`.
+     */
+    private void addContact(int j, Actor.Location loc) {
+        if (j != PACMANN && loc.collidesWith(actors.get(j).location())) {
+            contacts[numContacts++] = j;
+        }
+    }
+
+    /**
+     * Record that the collisions of the actors on undirected edge `ue` must be predicted again.
+     */
+    private void markStale(int ue) {
+        for (int k = 0; k < numStaleEdges; k++) {
+            if (staleEdges[k] == ue) {
+                return;
+            }
+        }
+        staleEdges[numStaleEdges++] = ue;
+    }
+
+    /**
+     * Add the actor with index `i` to the list of actors on undirected edge `ue`.
+     */
+    private void link(int i, int ue) {
+        actorEdge[i] = ue;
+        prevOnEdge[i] = -1;
+        nextOnEdge[i] = edgeFirst[ue];
+        if (edgeFirst[ue] >= 0) {
+            prevOnEdge[edgeFirst[ue]] = i;
+        }
+        edgeFirst[ue] = i;
+    }
+
+    /**
+     * Remove the actor with index `i` from the list of actors on its undirected edge.
+     */
+    private void unlink(int i) {
+        if (prevOnEdge[i] >= 0) {
+            nextOnEdge[prevOnEdge[i]] = nextOnEdge[i];
+        } else {
+            edgeFirst[actorEdge[i]] = nextOnEdge[i];
+        }
+        if (nextOnEdge[i] >= 0) {
+            prevOnEdge[nextOnEdge[i]] = prevOnEdge[i];
+        }
+        actorEdge[i] = -1;
+    }
+
+    /**
+     * Predict the earliest collision of each actor on undirected edge `ue` with PacMann (or, for
+     * PacMann, with a ghost) on that edge, given their current trajectories and that the current
+     * time is `now`.  Uses the same arithmetic as `CollisionEngine`.
+     */
+    private void predictCollisions(int ue, double now) {
+        for (int i = edgeFirst[ue]; i >= 0; i = nextOnEdge[i]) {
+            collisions.addOrUpdate(i, now + timeToCollision(i, ue));
+        }
+    }
+
+    /**
+     * Return the time until the actor with index `i` collides with PacMann (or, if it is PacMann,
+     * with a ghost) on undirected edge `ue` (which must be its edge), given their current
+     * trajectories, or POSITIVE_INFINITY if it will not.
+     */
+    private double timeToCollision(int i, int ue) {
+        Actor a = actors.get(i);
+        if (i != PACMANN) {
+            return actorEdge[PACMANN] == ue ? timeToMeet(a, actors.get(PACMANN))
+                    : Double.POSITIVE_INFINITY;
+        }
+        double minDt = Double.POSITIVE_INFINITY;
+        for (int j = edgeFirst[ue]; j >= 0; j = nextOnEdge[j]) {
+            if (j != i) {
+                minDt = Math.min(minDt, timeToMeet(a, actors.get(j)));
+            }
+        }
+        return minDt;
+    }
+
+    /**
+     * Return the time until `a` and `b`, which must be on the same undirected edge, meet given
+     * their current trajectories, or POSITIVE_INFINITY if they will not.
+     */
+    private static double timeToMeet(Actor a, Actor b) {
+        double s = (position(a) - position(b)) / (velocity(b) - velocity(a));
+        // Note: inequality skips NaNs
+        return s > 0 ? s : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Return the position of `a` along its undirected edge, measured from the end that RIGHT and
+     * DOWN edges leave from.
+     */
+    private static double position(Actor a) {
+        Direction d = a.location().edge().direction();
+        double p = a.location().progress();
+        return d == Direction.RIGHT || d == Direction.DOWN ? p : 1 - p;
+    }
+
+    /**
+     * Return the velocity of `a` along its undirected edge, positive in the RIGHT and DOWN
+     * directions.
+     */
+    private static double velocity(Actor a) {
+        MazeEdge e = a.location().edge();
+        return e.direction() == Direction.RIGHT || e.direction() == Direction.DOWN
+                ? a.edgeSpeed() : -a.edgeSpeed();
+    }
+}
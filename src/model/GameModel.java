@@ -1,20 +1,15 @@
 package model;
 
 import graph.MazeGraph;
+import graph.MazePathfinder;
 import java.util.HashSet;
 import graph.MazeGraph.IPair;
 import graph.MazeGraph.MazeEdge;
 import graph.MazeGraph.MazeVertex;
-import util.ElevationGenerator;
-import util.MazeGenerator;
-import util.MazeGenerator.TileType;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import javax.swing.event.SwingPropertyChangeSupport;
 import model.Ghost.GhostState;
 import graph.MazeGraph.Direction;
@@ -31,6 +26,18 @@ public class GameModel {
      */
     public enum GameState {READY, PLAYING, VICTORY, DEFEAT}
 
+    /**
+     * The ways in which `updateActors()` can advance the game.  STEPPED recomputes every actor's
+     * next arrival and every pair of actors' next collision at each step, and checks every pair of
+     * actors for collisions after it.  EVENT_DRIVEN keeps arrivals, and collisions between PacMann
+     * and ghosts, in a time-ordered event queue, only recomputes them for the actors that an event
+     * affects, and only checks the ghosts near PacMann for collisions.  Collisions between ghosts
+     * do not affect the game, so EVENT_DRIVEN does not step at them.  Both modes follow the same
+     * rules, but since their steps (and so their rounding errors) differ, the same game may play
+     * out differently in each.
+     */
+    public enum SimulationMode {STEPPED, EVENT_DRIVEN}
+
     /**
      * The current state of this model
      */
@@ -47,16 +54,38 @@ public class GameModel {
     public enum Item {DOT, PELLET, NONE}
 
     /**
-     * A map from the vertices in the game graph to items positioned on these vertices. `items` only
-     * includes the vertices containing DOTs and PELLETs, not NONE.
+     * The ids of the vertices in the game graph that contain a DOT.
+     */
+    private final ItemSet dots;
+
+    /**
+     * The ids of the vertices in the game graph that contain a PELLET.  No vertex contains both a
+     * DOT and a PELLET.
      */
-    private final Map<MazeVertex, Item> items;
+    private final ItemSet pellets;
 
     /**
      * The graph representation of the game's maze
      */
     private final MazeGraph graph;
 
+    /**
+     * The distances along the maze from the nearest chasing ghost, shared by all of PacMann's
+     * decisions in a step.
+     */
+    private final DangerField dangerField;
+
+    /**
+     * The ids of the vertices that chasing ghosts are nearest to.  Only the first `numGhosts()`
+     * entries may be meaningful.
+     */
+    private final int[] dangerSources;
+
+    /**
+     * Whether `dangerField` must be recomputed before it is next used.
+     */
+    private boolean dangerFieldStale;
+
     /**
      * The current score
      */
@@ -78,15 +107,70 @@ public class GameModel {
     private final int height;
 
     /**
-     * The actors in this game, PacMann will be in index 0 and the ghosts will be in indices 1-4
+     * The number of ghosts in a standard game: one each of Blinky, Pinky, Inky, and Clyde.
+     */
+    public static final int STANDARD_NUM_GHOSTS = 4;
+
+    /**
+     * The actors in this game, PacMann will be in index 0 and the ghosts will be in the remaining
+     * indices
      */
     private final List<Actor> actors;
 
+    /**
+     * The first Blinky, Pinky, Inky, and Clyde in the roster, or null if there are too few ghosts
+     * to include one of each
+     */
+    private final Ghost blinky, pinky, inky, clyde;
+
+    /**
+     * Predicts collisions between actors.
+     */
+    private final CollisionEngine collisions;
+
+    /**
+     * How `updateActors()` advances the game.
+     */
+    private SimulationMode simulationMode;
+
+    /**
+     * The event queue used in the EVENT_DRIVEN simulation mode.
+     */
+    private final EventScheduler events;
+
+    /**
+     * The shortest step that `updateActors()` will take, which ensures forward progress even if an
+     * event is due immediately (e.g., while two actors remain in contact).
+     */
+    private static final double MIN_STEP = 1e-7;
+
+    /**
+     * The maximum number of steps that one call to `updateActors()` may take.
+     */
+    private int maxSubsteps;
+
+    /**
+     * The number of steps that `updateActors()` has taken so far.
+     */
+    private long numSteps;
+
+    /**
+     * The number of steps that `updateActors()` has taken so far whose length had to be raised to
+     * `MIN_STEP` because an event was due sooner than that.
+     */
+    private long numDegenerateSteps;
+
     /**
      * The number of ghosts that were caught during the current FLEE cycle
      */
     private int numGhostsCaught;
 
+    /**
+     * The number of ghosts caught in one FLEE cycle beyond which catching another is worth no more
+     * than the last, so that large rosters cannot overflow the points for a catch.
+     */
+    private static final int MAX_CATCH_DOUBLINGS = 16;
+
     /**
      * The number of lives remaining
      */
@@ -107,56 +191,137 @@ public class GameModel {
      **************************************************************** */
 
     /**
-     * Construct a new game model using the given arrays of tile types and elevations
+     * Construct a new game model using the given arrays of tile types and elevations, with the
+     * standard roster of ghosts
      */
     public GameModel(GameMap map, Randomness randomness, boolean withAI) {
-        this.map = map;
-        width = map.types().length;
-        height = map.types()[0].length;
-        graph = new MazeGraph(map);
+        this(map, randomness, withAI, STANDARD_NUM_GHOSTS);
+    }
 
-        items = new HashMap<>();
+    /**
+     * Construct a new game model using the given arrays of tile types and elevations, with
+     * `numGhosts` ghosts.  The roster cycles through Blinky, Pinky, Inky, and Clyde, so the first
+     * four ghosts are the standard roster.  Requires `numGhosts >= 0`.
+     */
+    public GameModel(GameMap map, Randomness randomness, boolean withAI, int numGhosts) {
+        this(map, new MazeGraph(map), randomness, withAI, numGhosts);
         placeDotsAndPellets();
 
         score = 0;
         time = 0;
         numLives = 3;
         state = GameState.READY;
+    }
+
+    /**
+     * Construct a game on the same maze as `original`, sharing its map and graph (which are never
+     * modified, so the copy reuses the graph's path caches), with the same roster of ghosts and
+     * with PacMann controlled by a `PacMannAI`.  No items are placed and the actors are left at
+     * their starting state, since `copy()` immediately restores the original's state.
+     */
+    private GameModel(GameModel original, Randomness randomness) {
+        this(original.map, original.graph, randomness, true, original.numGhosts());
+    }
+
+    /**
+     * Construct a game on `map`, whose graph is `graph`, with PacMann and `numGhosts` ghosts at
+     * their starting state but no items.  This is the setup shared by new games and copies; the
+     * caller is responsible for the items and for the rest of the game's state.
+     */
+    private GameModel(GameMap map, MazeGraph graph, Randomness randomness, boolean withAI,
+            int numGhosts) {
+        assert numGhosts >= 0;
+        this.map = map;
+        width = map.types().width();
+        height = map.types().height();
+        this.graph = graph;
+        collisions = new CollisionEngine(graph);
+        dots = new ItemSet(graph.vertexCount());
+        pellets = new ItemSet(graph.vertexCount());
 
         actors = new ArrayList<>();
         // Uncomment the following line after completing
         //actors.add(new PacMannManual(this));
         // (Optional) Replace the above line with the following after completing TODO 5
         actors.add(withAI ? new PacMannAI(this) : new PacMannManual(this));
-        // Uncomment the following line after completing
-        actors.add(new Blinky(this));
-        // Uncomment the following line after completing
-        actors.add(new Pinky(this));
-        // Uncomment the following line after completing
-        actors.add(new Inky(this));
-        // Uncomment the following line after completing
-        actors.add(new Clyde(this, randomness.generatorFor("Clyde")));
+        addGhosts(numGhosts, randomness);
+        blinky = numGhosts > 0 ? (Ghost) actors.get(1) : null;
+        pinky = numGhosts > 1 ? (Ghost) actors.get(2) : null;
+        inky = numGhosts > 2 ? (Ghost) actors.get(3) : null;
+        clyde = numGhosts > 3 ? (Ghost) actors.get(4) : null;
+
+        dangerField = new DangerField(graph);
+        dangerSources = new int[numGhosts];
+        dangerFieldStale = true;
+
+        simulationMode = SimulationMode.STEPPED;
+        maxSubsteps = Integer.MAX_VALUE;
+        events = new EventScheduler(graph, actors);
 
         boolean notifyOnEdit = false; // no threads, so false is okay
         propSupport = new SwingPropertyChangeSupport(this, notifyOnEdit);
     }
 
     /**
-     * Static method to construct a GameModel object associated with a new random maze
+     * Add `numGhosts` ghosts to `actors` during the construction of this game.  The roster cycles
+     * through Blinky, Pinky, Inky, and Clyde, and each Clyde's random choices are driven by its
+     * own generator from `randomness`.
+     */
+    private void addGhosts(int numGhosts, Randomness randomness) {
+        for (int k = 0; k < numGhosts; k++) {
+            actors.add(switch (k % STANDARD_NUM_GHOSTS) {
+                case 0 -> new Blinky(this);
+                case 1 -> new Pinky(this);
+                case 2 -> new Inky(this);
+                default -> new Clyde(this, randomness.generatorFor(
+                        k < STANDARD_NUM_GHOSTS ? "Clyde" : "Clyde" + k));
+            });
+        }
+    }
+
+    /**
+     * Static method to construct a GameModel object associated with a new random maze, with the
+     * standard roster of ghosts
      */
     public static GameModel newGame(int width, int height, boolean withAI, Randomness randomness) {
-        TileType[][] types = new MazeGenerator(width, height,
-                randomness.generatorFor("MazeGenerator")).generateMaze();
-        int tilesAcross = 3 * width + 2;
-        int tilesHigh = 3 * height + 2;
-        double[][] elevations = ElevationGenerator.generateElevations(tilesAcross, tilesHigh,
-                randomness.generatorFor("ElevationGenerator"));
-        return new GameModel(new GameMap(types, elevations), randomness.randomnessFor("GameModel"),
-                withAI);
+        return newGame(width, height, withAI, randomness, STANDARD_NUM_GHOSTS);
+    }
+
+    /**
+     * Static method to construct a GameModel object associated with a new random maze, with
+     * `numGhosts` ghosts
+     */
+    public static GameModel newGame(int width, int height, boolean withAI, Randomness randomness,
+            int numGhosts) {
+        return newGame(GameMap.generate(width, height, randomness), withAI, randomness,
+                numGhosts);
     }
 
     /**
-     * Adds all dots and pellets to `items` during the construction of this game.
+     * Static method to construct a GameModel object on `map`, with `numGhosts` ghosts, whose
+     * random choices are those of a new game driven by `randomness` (so that, if `map` is the map
+     * that `GameMap.generate()` returns for `randomness`, it is identical to that new game).
+     */
+    public static GameModel newGame(GameMap map, boolean withAI, Randomness randomness,
+            int numGhosts) {
+        return new GameModel(map, randomness.randomnessFor("GameModel"), withAI, numGhosts);
+    }
+
+    /**
+     * Return an independent copy of this game (in its current state) that shares this game's
+     * immutable maze, so is much cheaper to construct than a new game.  PacMann is controlled by
+     * a (non-planning) `PacMannAI` in the copy, and any random choices made by its ghosts are
+     * driven by `randomness`.  The copy has no listeners, and may be advanced on a different
+     * thread than this game.
+     */
+    public GameModel copy(Randomness randomness) {
+        GameModel ret = new GameModel(this, randomness);
+        ret.restore(snapshot());
+        return ret;
+    }
+
+    /**
+     * Adds all dots and pellets to `dots` and `pellets` during the construction of this game.
      */
     private void placeDotsAndPellets() {
         // build set of pellet locations
@@ -172,7 +337,7 @@ public class GameModel {
 
         for (MazeVertex v : graph.vertices()) {
             if (pelletLocs.contains(v.loc())) {
-                items.put(v, Item.PELLET);
+                pellets.set(v.id());
                 continue;
             }
 
@@ -181,7 +346,7 @@ public class GameModel {
 
             // place pellets at all interior vertices
             if (i >= 2 && i < width - 2 && j >= 2 && j < height - 2) {
-                items.put(v, Item.DOT);
+                dots.set(v.id());
             }
         }
     }
@@ -240,31 +405,60 @@ public class GameModel {
     }
 
     /**
-     * Return a reference to this game instance's Blinky Actor object
+     * Return the number of ghosts in this game instance
+     */
+    public int numGhosts() {
+        return actors.size() - 1;
+    }
+
+    /**
+     * Return a reference to this game instance's (first) Blinky Actor object, or null if it has
+     * none
      */
     public Ghost blinky() {
-        return (Ghost) actors.get(1);
+        return blinky;
     }
 
     /**
-     * Return a reference to this game instance's Pinky Actor object
+     * Return a reference to this game instance's (first) Pinky Actor object, or null if it has none
      */
     public Ghost pinky() {
-        return (Ghost) actors.get(2);
+        return pinky;
     }
 
     /**
-     * Return a reference to this game instance's Inky Actor object
+     * Return a reference to this game instance's (first) Inky Actor object, or null if it has none
      */
     public Ghost inky() {
-        return (Ghost) actors.get(3);
+        return inky;
     }
 
     /**
-     * Return a reference to this game instance's Clyde Actor object
+     * Return a reference to this game instance's (first) Clyde Actor object, or null if it has none
      */
     public Ghost clyde() {
-        return (Ghost) actors.get(4);
+        return clyde;
+    }
+
+    /**
+     * Return the length of the shortest path along the maze to `v` from the vertex nearest to any
+     * chasing ghost, or POSITIVE_INFINITY if no ghost is chasing.  Distances are computed for all
+     * vertices by one search the first time they are requested in each step of `updateActors()`,
+     * so subsequent requests in that step are O(1).
+     */
+    public double dangerAt(MazeVertex v) {
+        if (dangerFieldStale) {
+            int numSources = 0;
+            for (int i = 1; i < actors.size(); i++) {
+                Ghost g = (Ghost) actors.get(i);
+                if (g.state() == GhostState.CHASE) {
+                    dangerSources[numSources++] = g.nearestVertex().id();
+                }
+            }
+            dangerField.compute(dangerSources, numSources);
+            dangerFieldStale = false;
+        }
+        return dangerField.distanceTo(v);
     }
 
     /**
@@ -286,9 +480,103 @@ public class GameModel {
      * null.
      */
     public Item itemAt(MazeVertex v) {
-        return items.getOrDefault(v, Item.NONE);
+        if (dots.get(v.id())) {
+            return Item.DOT;
+        }
+        return pellets.get(v.id()) ? Item.PELLET : Item.NONE;
     }
 
+    /**
+     * Return the number of vertices containing `item`, which must not be NONE.
+     */
+    public int numItems(Item item) {
+        return itemSet(item).size();
+    }
+
+    /**
+     * Return the shortest path (allowing its first edge to backtrack) from `src` to the vertex
+     * other than `src` containing `item` (which must not be NONE) that is nearest to it along the
+     * maze, or null if there is none.  The search stops as soon as it settles such a vertex.
+     */
+    public List<MazeEdge> pathToNearestItem(Item item, MazeVertex src) {
+        ItemSet ids = itemSet(item);
+        int s = src.id();
+        MazePathfinder pf = MazePathfinder.forGraph(graph);
+        return pf.searchNearest(src, null, v -> v != s && ids.get(v)) == null ? null : pf.path();
+    }
+
+    /**
+     * Return the ids of the vertices containing `item`, which must not be NONE.
+     */
+    private ItemSet itemSet(Item item) {
+        return switch (item) {
+            case DOT -> dots;
+            case PELLET -> pellets;
+            case NONE -> throw new IllegalArgumentException("NONE is not a countable item");
+        };
+    }
+
+    /**
+     * Return the vertices containing `item`, which must not be NONE, in order of `id()`.
+     */
+    public List<MazeVertex> verticesWithItem(Item item) {
+        ItemSet ids = itemSet(item);
+        List<MazeVertex> ret = new ArrayList<>(numItems(item));
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            ret.add(graph.vertex(id));
+        }
+        return ret;
+    }
+
+
+    /**
+     * Return how `updateActors()` advances the game.
+     */
+    public SimulationMode simulationMode() {
+        return simulationMode;
+    }
+
+    /**
+     * Set how `updateActors()` advances the game.  May be changed between calls to
+     * `updateActors()`.
+     */
+    public void setSimulationMode(SimulationMode mode) {
+        simulationMode = mode;
+    }
+
+    /**
+     * Return the maximum number of steps that one call to `updateActors()` may take.
+     */
+    public int maxSubsteps() {
+        return maxSubsteps;
+    }
+
+    /**
+     * Limit each call to `updateActors()` to at most `maxSubsteps` steps.  A call that reaches
+     * this limit returns without advancing the game by the full time requested, so the cost of
+     * each call is bounded even if events keep occurring in rapid succession.  Requires
+     * `maxSubsteps > 0`.
+     */
+    public void setMaxSubsteps(int maxSubsteps) {
+        assert maxSubsteps > 0;
+        this.maxSubsteps = maxSubsteps;
+    }
+
+    /**
+     * Return the number of steps that `updateActors()` has taken so far.
+     */
+    public long numSteps() {
+        return numSteps;
+    }
+
+    /**
+     * Return the number of steps that `updateActors()` has taken so far whose length was raised to
+     * the minimum allowed step because an event was due sooner than that.  A large proportion of
+     * such steps indicates that actors are stuck in contact.
+     */
+    public long numDegenerateSteps() {
+        return numDegenerateSteps;
+    }
 
     /**
      * Return the current state of this game.
@@ -316,11 +604,12 @@ public class GameModel {
     }
 
     /**
-     * Increment the current score by `points` points and notify "score" observers.
+     * Increment the current score by `points` points (saturating at `Integer.MAX_VALUE`) and
+     * notify "score" observers.
      */
     private void addToScore(int points) {
         int oldScore = score;
-        score += points;
+        score = (int) Math.min((long) score + points, Integer.MAX_VALUE);
         propSupport.firePropertyChange("score", oldScore, score);
     }
 
@@ -332,6 +621,7 @@ public class GameModel {
         numGhostsCaught = 0;
         for (int i = 1; i < actors.size(); i++) {
             ((Ghost) actors.get(i)).startFlee();
+            events.invalidate(i);
         }
     }
 
@@ -346,12 +636,13 @@ public class GameModel {
         }
         else if(item == Item.DOT){
             addToScore(10);
+            dots.clear(v.id());
         }
         else{ //item is a pellet
             addToScore(50);
             startFlee();
+            pellets.clear(v.id());
         }
-        items.remove(v);
     }
 
     /**
@@ -408,6 +699,63 @@ public class GameModel {
         setState(GameState.VICTORY);
     }
 
+    /* ****************************************************************
+     * Snapshots                                                      *
+     **************************************************************** */
+
+    /**
+     * The mutable state of a game at some moment, as captured by `snapshot()`.  The item sets hold
+     * the ids of the vertices containing dots and pellets; they share structure with the game
+     * (and with other snapshots of it) and are never modified.  Actors' snapshots are listed in
+     * the same order as `actors()`.
+     */
+    public record Snapshot(GameState state, int score, double time, int numLives,
+                           int numGhostsCaught, Direction direction, ItemSet dots, ItemSet pellets,
+                           List<Actor.Snapshot> actors) {
+
+    }
+
+    /**
+     * Return a snapshot of the current state of this game, which may later be restored to this
+     * game or to a copy of it with `restore()`.  Takes time proportional to the number of actors
+     * (the items are shared with the game, which copies the parts it changes afterwards).
+     */
+    public Snapshot snapshot() {
+        List<Actor.Snapshot> actorSnapshots = new ArrayList<>(actors.size());
+        for (Actor a : actors) {
+            actorSnapshots.add(a.snapshot());
+        }
+        return new Snapshot(state, score, time, numLives, numGhostsCaught, direction,
+                dots.fork(), pellets.fork(),
+                Collections.unmodifiableList(actorSnapshots));
+    }
+
+    /**
+     * Return this game to the state captured in `snapshot`, which must have been taken from this
+     * game or from a game that it is a copy of (or that is a copy of it).  Observers are not
+     * notified.  Ghosts' random number generators are not restored, so their subsequent random
+     * choices may differ from those made after the snapshot was taken.  Takes time proportional
+     * to the number of actors (the items are shared with the snapshot, as for `snapshot()`).
+     */
+    public void restore(Snapshot snapshot) {
+        assert snapshot.actors().size() == actors.size();
+        state = snapshot.state();
+        score = snapshot.score();
+        time = snapshot.time();
+        numLives = snapshot.numLives();
+        numGhostsCaught = snapshot.numGhostsCaught();
+        direction = snapshot.direction();
+
+        dots.restore(snapshot.dots());
+        pellets.restore(snapshot.pellets());
+
+        for (int i = 0; i < actors.size(); i++) {
+            actors.get(i).restore(snapshot.actors().get(i));
+        }
+        events.invalidateAll();
+        dangerFieldStale = true;
+    }
+
     /* ****************************************************************
      * Observational interface                                        *
      **************************************************************** */
@@ -444,30 +792,56 @@ public class GameModel {
      **************************************************************** */
 
     /**
-     * Handle a collision detected between two actors.
+     * Handle a collision detected between the actors with indices `i` and `j`.
      */
-    private void processCollision(Actor a1, Actor a2) throws PacMannCaught {
-        // Perform runtime type checking to determine whether one of the actors was PacMann.
-        //  Alternatively, could compare with our known PacMann actor.
-        if (a1 instanceof PacMann) {
-            collideWithGhost((Ghost) a2);
-        } else if (a2 instanceof PacMann) {
-            collideWithGhost((Ghost) a1);
+    private void processCollision(int i, int j) throws PacMannCaught {
+        // PacMann is always at index 0
+        if (i == 0) {
+            collideWithGhost(j);
+        } else if (j == 0) {
+            collideWithGhost(i);
         }
 
         // Ignore ghost-ghost collisions
     }
 
     /**
-     * Handle a PacMann-Ghost collision.  Score and respawn ghosts if they are fleeing; otherwise,
-     * throw `PacMannCaught`.  Fleeing ghosts earn points exponential in the number of ghosts caught
-     * since the last pellet was consumed.
+     * Handle every collision between actors at their current locations, in order of the actors'
+     * indices.
+     */
+    private void processCollisions() throws PacMannCaught {
+        int numColliding = collisions.detectCollisions(actors);
+        for (int k = 0; k < numColliding; k++) {
+            processCollision(collisions.collidingFirst(k), collisions.collidingSecond(k));
+        }
+    }
+
+    /**
+     * Handle every collision between PacMann and a ghost at their current locations, in order of
+     * the ghosts' indices, examining only the ghosts that `events` finds near PacMann.  Since
+     * collisions between ghosts are ignored, this handles the same collisions as
+     * `processCollisions()`.
      */
-    private void collideWithGhost(Ghost g) throws PacMannCaught {
+    private void processPacMannContacts() throws PacMannCaught {
+        int numContacts = events.detectContacts();
+        for (int k = 0; k < numContacts; k++) {
+            collideWithGhost(events.contact(k));
+        }
+    }
+
+    /**
+     * Handle a collision between PacMann and the ghost with index `i`.  Score and respawn the
+     * ghost if it is fleeing; otherwise, throw `PacMannCaught`.  Fleeing ghosts earn points
+     * exponential in the number of ghosts caught since the last pellet was consumed (up to
+     * `MAX_CATCH_DOUBLINGS` of them).
+     */
+    private void collideWithGhost(int i) throws PacMannCaught {
+        Ghost g = (Ghost) actors.get(i);
         if (g.state() == GhostState.FLEE) {
             numGhostsCaught += 1;
-            addToScore((int) (100 * Math.pow(2, numGhostsCaught)));
+            addToScore(100 << Math.min(numGhostsCaught, MAX_CATCH_DOUBLINGS));
             g.respawn();
+            events.invalidate(i);
         } else if (g.state() == GhostState.CHASE) {
             throw new PacMannCaught();
         }
@@ -475,10 +849,10 @@ public class GameModel {
 
 
     /**
-     * Propagate the game forward in time by `totalDt` ms.  Process all actor collisions and vertex
-     * visitations.  Update actors' traversed edges upon reaching a vertex.  Handle round-end and
-     * game-end conditions, notifying observers.  Notify "board_state" observers after propagation
-     * has concluded.
+     * Propagate the game forward in time by `totalDt` ms, or by less if `maxSubsteps()` steps do
+     * not suffice.  Process all actor collisions and vertex visitations.  Update actors' traversed
+     * edges upon reaching a vertex.  Handle round-end and game-end conditions, notifying
+     * observers.  Notify "board_state" observers after propagation has concluded.
      */
     public void updateActors(double totalDt) {
         if (state == GameState.READY) {
@@ -486,41 +860,9 @@ public class GameModel {
         }
 
         try {
-            double t = 0;
-            while (t < totalDt) {
-                navAndGuide();
-                double dt = nextDt(totalDt - t);
-//                System.err.println("Stepping " + dt + " from " + t + " (goal: " + ms + ")");
-
-                // Propagate actors
-                t += dt;
-                time += dt;
-                for (Actor a : actors) {
-                    a.propagate(dt);
-                }
-
-                // Check for collisions
-                for (int i = 0; i < actors.size(); i += 1) {
-                    Actor a = actors.get(i);
-                    for (int j = i + 1; j < actors.size(); j += 1) {
-                        Actor b = actors.get(j);
-                        if (a.location().collidesWith(b.location())) {
-                            processCollision(a, b);
-                        }
-                    }
-                }
-
-                // Vertex events
-                for (Actor a : actors) {
-                    if (a.location().progress() == 1) {
-                        a.visitVertex(a.location().edge().head());
-                    }
-                }
-                // Check for end game condition
-                if (items.isEmpty()) {
-                    victory();
-                    break;
-                }
+            switch (simulationMode) {
+                case SimulationMode.STEPPED -> propagateStepped(totalDt);
+                case SimulationMode.EVENT_DRIVEN -> propagateEventDriven(totalDt);
             }
         } catch (PacMannCaught e) {
             defeat();
@@ -529,12 +871,91 @@ public class GameModel {
         propSupport.firePropertyChange("board_state", null, null);
     }
 
+    /**
+     * Propagate the game forward in time by up to `totalDt` ms (stopping early if the game is won
+     * or after `maxSubsteps` steps), one step per event, recomputing the time until the next event
+     * at every step.  Throws `PacMannCaught` if a chasing ghost catches PacMann.
+     */
+    private void propagateStepped(double totalDt) throws PacMannCaught {
+        double t = 0;
+        for (int steps = 0; t < totalDt && steps < maxSubsteps; steps++) {
+            navAndGuide();
+            double dt = nextDt(totalDt - t);
+
+            // Propagate actors
+            t += dt;
+            time += dt;
+            for (Actor a : actors) {
+                a.propagate(dt);
+            }
+
+            processCollisions();
+
+            visitVertices();
+            // Check for end game condition
+            if (dots.size() + pellets.size() == 0) {
+                victory();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Propagate the game forward in time by up to `totalDt` ms (stopping early if the game is won
+     * or after `maxSubsteps` steps), one step per event, taking the time of the next event from
+     * `events`.  Actors' positions are still advanced at every step (since any actor's decisions
+     * may depend on any other's position), but only actors involved in an event, or whose
+     * trajectory changed, have their arrivals and collisions predicted again, and only ghosts
+     * near PacMann are checked for collisions.  Throws `PacMannCaught` if a chasing ghost catches
+     * PacMann.
+     */
+    private void propagateEventDriven(double totalDt) throws PacMannCaught {
+        // Actors may have been reset since the last call
+        events.invalidateAll();
+        double t = 0;
+        for (int steps = 0; t < totalDt && steps < maxSubsteps; steps++) {
+            navAndGuide();
+            events.reschedule(time);
+            double dt = countStep(Math.min(events.timeToNextEvent(time), totalDt - t));
+
+            // Propagate actors
+            t += dt;
+            time += dt;
+            for (Actor a : actors) {
+                a.propagate(dt);
+            }
+
+            events.fire(time);
+            processPacMannContacts();
+
+            visitVertices();
+            // Check for end game condition
+            if (dots.size() + pellets.size() == 0) {
+                victory();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Notify every actor that has just reached the end of its edge of its arrival.
+     */
+    private void visitVertices() {
+        for (Actor a : actors) {
+            if (a.location().progress() == 1) {
+                a.visitVertex(a.location().edge().head());
+            }
+        }
+    }
+
     /**
      * Give any actor currently standing on a vertex an opportunity to decide which edge to traverse
      * next.  Enforces that their next edge starts at their current location.
      */
     private void navAndGuide() {
-        for (Actor a : actors) {
+        dangerFieldStale = true;
+        for (int i = 0; i < actors.size(); i++) {
+            Actor a = actors.get(i);
             if (a.location().atVertex()) {
                 MazeVertex start = a.location().nearestVertex();
                 MazeEdge e = a.nextEdge();
@@ -543,6 +964,7 @@ public class GameModel {
                         throw new RuntimeException("Illegal next edge");
                     }
                     a.traverseEdge(e);
+                    events.invalidate(i);
                 }
             }
         }
@@ -559,63 +981,29 @@ public class GameModel {
             minDt = Math.min(minDt, a.maxPropagationTime());
         }
         minDt = Math.min(minDt, nextCollisionTime());
-        final double minAllowedDt = 1e-7;
-        return Math.max(minDt, minAllowedDt);
+        return countStep(minDt);
     }
 
     /**
-     * Return the earliest timestep at which two actors will collide, given their current
-     * trajectories.  Actors may cross each other along an edge or may meet at a vertex. Returns
-     * POSITIVE_INFINITY if no actors will collide along their current edge trajectories.
+     * Record that a step of length `dt` is being taken, raising it to `MIN_STEP` (and recording the
+     * step as degenerate) if it is shorter than that, and return the length of the step.
      */
-    private double nextCollisionTime() {
-        double minDt = Double.POSITIVE_INFINITY;
-
-        // The current location and velocity of each actor, associated with the _undirected_ edge
-        //  they are currently traversing.
-        Map<UnorderedPair<MazeVertex>, List<Trajectory>> movements = new HashMap<>();
-
-        for (Actor a : actors) {
-            // Determine the unordered edge that `a` is currently traversing, and query any
-            //  previously seen actors traversing that same edge (in either direction)
-            MazeEdge e = a.location().edge();
-            UnorderedPair<MazeVertex> ue = new UnorderedPair<>(e.tail(), e.head());
-            List<Trajectory> edgemates = movements.computeIfAbsent(ue,
-                    k -> new LinkedList<>());
-
-            // Compute the intersection time between this actor and any already-seen actor
-            //  traversing the same edge
-            var myAm = Trajectory.fromActor(a);
-            for (Trajectory am : edgemates) {
-                // Don't trigger if starting from the same place
-//                if (myAm.p() == am.p()) { continue; }
-                double s = (myAm.p() - am.p()) / (am.v() - myAm.v());
-                // Note: inequality skips NaNs
-                if (s > 0 && s < minDt) {
-                    minDt = s;
-                }
-            }
-
-            // Add our trajectory to the map, to be seen by subsequent actors
-            edgemates.add(myAm);
+    private double countStep(double dt) {
+        numSteps += 1;
+        if (dt < MIN_STEP) {
+            numDegenerateSteps += 1;
+            return MIN_STEP;
         }
-        return minDt;
+        return dt;
     }
 
     /**
-     * The position and velocity of an actor on an associated _undirected_ edge.  RIGHT and DOWN are
-     * considered the "positive" directions.
+     * Return the earliest timestep at which two actors will collide, given their current
+     * trajectories.  Actors may cross each other along an edge or may meet at a vertex. Returns
+     * POSITIVE_INFINITY if no actors will collide along their current edge trajectories.
      */
-    private record Trajectory(double p, double v) {
-
-        public static Trajectory fromActor(Actor actor) {
-            MazeEdge e = actor.location().edge();
-            if (e.direction() == Direction.RIGHT || e.direction() == Direction.DOWN) {
-                return new Trajectory(actor.location().progress(), actor.edgeSpeed());
-            } else {
-                return new Trajectory(1 - actor.location().progress(), -actor.edgeSpeed());
-            }
-        }
+    private double nextCollisionTime() {
+        return collisions.nextCollisionTime(actors);
     }
 
     /**
@@ -625,46 +1013,4 @@ public class GameModel {
     private static class PacMannCaught extends Exception {
 
     }
-
-    /**
-     * An unordered pair of values of type `T`.  Equality and hash code are independent of the order
-     * of constructor parameters or fields.
-     */
-    private static final class UnorderedPair<T> {
-
-        // elem1.hashCode() <= elem2.hashCode()
-        private final T elem1;
-        private final T elem2;
-
-        public UnorderedPair(T a, T b) {
-            // Impose a preferred ordering to make toString more consistent
-            if (a.hashCode() <= b.hashCode()) {
-                elem1 = a;
-                elem2 = b;
-            } else {
-                elem1 = b;
-                elem2 = a;
-            }
-        }
-
-        @Override
-        public boolean equals(Object other) {
-            if (other instanceof UnorderedPair<?> op) {
-                // Still need to check both orderings in case of hash collisions
-                return elem1.equals(op.elem1) && elem2.equals(op.elem2) ||
-                        elem1.equals(op.elem2) && elem2.equals(op.elem1);
-            }
-            return false;
-        }
-
-        @Override
-        public int hashCode() {
-            return elem1.hashCode() ^ elem2.hashCode();
-        }
-
-        @Override
-        public String toString() {
-            return "{" + elem1 + "," + elem2 + "}";
-        }
-    }
 }
@@ -6,7 +6,6 @@ import java.util.List;
 import graph.MazeGraph.MazeEdge;
 import graph.MazeGraph.IPair;
 import graph.MazeGraph.MazeVertex;
-import graph.Pathfinding;
 
 // TODO 4a-d: Extend this class by defining (non-abstract) subclasses `Blinky`, `Pinky`, `Inky`,
 //  and `Clyde`, each in separate files "model/<Ghost name>.java", that model these ghosts' unique
@@ -62,10 +61,22 @@ public abstract class Ghost extends Actor {
     private final Color ghostColor;
 
     /**
-     * The edges comprising the most recently calculated path to this ghost's `target()`
+     * The edges comprising the most recently calculated path to this ghost's `target()`, or null if
+     * no path was found
      */
     private List<MazeEdge> guidancePath;
 
+    /**
+     * The target that `guidancePath` leads to, or null if it must be recalculated at the next
+     * vertex
+     */
+    private MazeVertex guidanceTarget;
+
+    /**
+     * The number of edges of `guidancePath` that this ghost has been directed along so far
+     */
+    private int guidanceStep;
+
     /**
      * Construct a ghost associated to the given `model` with specified color and initial delay
      */
@@ -147,19 +158,46 @@ public abstract class Ghost extends Actor {
 
     /**
      * Returns the first edge along the shortest path from this ghost's `currentVertex()` to its
-     * `target()`.
+     * `target()`, as given by the model's distance field to that target.  Every suffix of such a
+     * path is the path that the field gives from that suffix's start, so while the target is
+     * unchanged and this ghost has just finished the previous edge of `guidancePath`, the path is
+     * reused rather than recalculated.
      */
     @Override
     public MazeEdge nextEdge() {
         MazeEdge prevEdge = (location.progress() == 1) ? location.edge() : null;
-        guidancePath = Pathfinding.shortestNonBacktrackingPath(nearestVertex(), target(),
-                prevEdge);
-        return guidancePath == null || guidancePath.isEmpty() ? null : guidancePath.getFirst();
+        MazeVertex target = target();
+        if (!guidanceValid(target, prevEdge)) {
+            guidancePath = model.graph().distanceField(target).pathFrom(nearestVertex(), prevEdge);
+            guidanceTarget = target;
+            guidanceStep = 0;
+        }
+        if (guidancePath == null || guidanceStep == guidancePath.size()) {
+            guidanceTarget = null;
+            return null;
+        }
+        return guidancePath.get(guidanceStep++);
+    }
+
+    /**
+     * Return whether the remainder of `guidancePath` is a shortest path to `target` from the end of
+     * `prevEdge`, which is the case if it was calculated for that target and `prevEdge` is the
+     * last edge that this ghost was directed along.
+     */
+    private boolean guidanceValid(MazeVertex target, MazeEdge prevEdge) {
+        return guidanceTarget != null && guidanceTarget.equals(target) && prevEdge != null
+                && guidanceStep > 0 && guidanceStep < guidancePath.size()
+                && guidancePath.get(guidanceStep - 1).equals(prevEdge);
     }
 
     @Override
     public List<MazeEdge> guidancePath() {
-        return Collections.unmodifiableList(guidancePath);
+        if (guidancePath == null) {
+            return List.of();
+        }
+        // Include the edge that this ghost is currently traversing
+        return Collections.unmodifiableList(
+                guidancePath.subList(Math.max(guidanceStep - 1, 0), guidancePath.size()));
     }
 
     /**
@@ -172,6 +210,8 @@ public abstract class Ghost extends Actor {
         waitTimeRemaining = initialDelay;
         location = new Location(model.graph().ghostStartingEdge(), 0);
         guidancePath = List.of();
+        guidanceTarget = null;
+        guidanceStep = 0;
     }
 
     @Override
@@ -183,6 +223,36 @@ public abstract class Ghost extends Actor {
         return baseSpeed;
     }
 
+    /**
+     * The mutable state of a ghost at some moment, as captured by `snapshot()`: its location,
+     * along with its behavioral state and the time remaining on its WAIT and FLEE timers.
+     */
+    public record GhostSnapshot(Location location, GhostState state, double waitTimeRemaining,
+                                double fleeTimeRemaining) implements Snapshot {
+
+    }
+
+    @Override
+    public GhostSnapshot snapshot() {
+        return new GhostSnapshot(location, state, waitTimeRemaining, fleeTimeRemaining);
+    }
+
+    /**
+     * Return this ghost to the state captured in `snapshot`.  Its guidance path is discarded, so
+     * it will be recalculated at the next vertex.
+     */
+    @Override
+    public void restore(Snapshot snapshot) {
+        GhostSnapshot ghostSnapshot = (GhostSnapshot) snapshot;
+        super.restore(ghostSnapshot);
+        state = ghostSnapshot.state();
+        waitTimeRemaining = ghostSnapshot.waitTimeRemaining();
+        fleeTimeRemaining = ghostSnapshot.fleeTimeRemaining();
+        guidancePath = List.of();
+        guidanceTarget = null;
+        guidanceStep = 0;
+    }
+
     /* ****************************************************************
      * Additional methods to handle ghost state transitions           *
      **************************************************************** */
@@ -0,0 +1,263 @@
+package model;
+
+/**
+ * A persistent set of vertex ids (e.g., those containing one kind of item), stored as a radix
+ * tree whose leaves are words of bits.  `fork()` returns a copy of the set in constant time by
+ * sharing the whole tree; afterwards, each set copies a node before its first write to it, so
+ * forking and then making k changes costs O(k) nodes rather than O(capacity), and `restore()`
+ * also takes constant time.
+ * <p>
+ * Absent subtrees represent ids that are not in the set.  Nodes that are shared by several sets
+ * are never modified, so a set may be read (and forked from, by restoring it) by several threads
+ * as long as no thread modifies it.
+ */
+final class ItemSet {
+
+    /**
+     * The base-2 logarithm of the number of ids covered by a leaf.
+     */
+    private static final int LEAF_SHIFT = 9;
+
+    /**
+     * The number of words of bits in a leaf.
+     */
+    private static final int LEAF_WORDS = 1 << (LEAF_SHIFT - 6);
+
+    /**
+     * The base-2 logarithm of the number of children of an interior node.
+     */
+    private static final int BRANCH_SHIFT = 4;
+
+    /**
+     * The number of children of an interior node.
+     */
+    private static final int BRANCH = 1 << BRANCH_SHIFT;
+
+    /**
+     * A node of the tree: either a leaf, holding words of bits, or an interior node, holding
+     * children (some of which may be null).
+     */
+    private static final class Node {
+
+        /**
+         * The token of the set that may modify this node in place.
+         */
+        final Object owner;
+
+        /**
+         * The children of this interior node, or null if it is a leaf.
+         */
+        final Node[] children;
+
+        /**
+         * The bits of this leaf, or null if it is an interior node.
+         */
+        final long[] words;
+
+        /**
+         * Create an empty node owned by `owner`, which is a leaf if `height` is 0.
+         */
+        Node(Object owner, int height) {
+            this.owner = owner;
+            children = height == 0 ? null : new Node[BRANCH];
+            words = height == 0 ? new long[LEAF_WORDS] : null;
+        }
+
+        /**
+         * Create a copy of `node` owned by `owner`.
+         */
+        Node(Object owner, Node node) {
+            this.owner = owner;
+            children = node.children == null ? null : node.children.clone();
+            words = node.words == null ? null : node.words.clone();
+        }
+    }
+
+    /**
+     * The number of possible ids (which range over [0..capacity)).
+     */
+    private final int capacity;
+
+    /**
+     * The number of levels of interior nodes above the leaves.
+     */
+    private final int height;
+
+    /**
+     * The root of the tree, or null if this set is empty.
+     */
+    private Node root;
+
+    /**
+     * The token identifying the nodes that only this set refers to, which it may modify in place.
+     */
+    private Object owner;
+
+    /**
+     * The number of ids in this set.
+     */
+    private int size;
+
+    /**
+     * Create an empty set of ids in [0..capacity).
+     */
+    ItemSet(int capacity) {
+        this.capacity = capacity;
+        int h = 0;
+        while ((1L << (LEAF_SHIFT + h * BRANCH_SHIFT)) < capacity) {
+            h += 1;
+        }
+        height = h;
+        owner = new Object();
+    }
+
+    /**
+     * Create a set of `size` ids in [0..capacity) sharing the tree rooted at `root`, of height
+     * `height`.
+     */
+    private ItemSet(int capacity, int height, Node root, int size) {
+        this.capacity = capacity;
+        this.height = height;
+        this.root = root;
+        this.size = size;
+        owner = new Object();
+    }
+
+    /**
+     * Return the number of ids in this set.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Return whether `id` is in this set.
+     */
+    boolean get(int id) {
+        int leaf = id >>> LEAF_SHIFT;
+        Node node = root;
+        for (int h = height; h > 0 && node != null; h--) {
+            node = node.children[childIndex(leaf, h)];
+        }
+        return node != null && (node.words[(id >>> 6) & (LEAF_WORDS - 1)] & (1L << id)) != 0;
+    }
+
+    /**
+     * Add `id` to this set.
+     */
+    void set(int id) {
+        if (!get(id)) {
+            leafFor(id)[(id >>> 6) & (LEAF_WORDS - 1)] |= 1L << id;
+            size += 1;
+        }
+    }
+
+    /**
+     * Remove `id` from this set.
+     */
+    void clear(int id) {
+        if (get(id)) {
+            leafFor(id)[(id >>> 6) & (LEAF_WORDS - 1)] &= ~(1L << id);
+            size -= 1;
+        }
+    }
+
+    /**
+     * Return the smallest id in this set that is at least `from`, or -1 if there is none.
+     */
+    int nextSetBit(int from) {
+        return from >= capacity ? -1 : next(root, height, 0, from);
+    }
+
+    /**
+     * Return a set containing the same ids as this one, sharing its tree.  Takes constant time.
+     */
+    ItemSet fork() {
+        // Neither set may now modify the shared nodes in place
+        owner = new Object();
+        return new ItemSet(capacity, height, root, size);
+    }
+
+    /**
+     * Make this set contain the same ids as `src`, sharing its tree.  Takes constant time.
+     * Requires that `src` has the same capacity as this set and is never modified (as is the case
+     * for a set returned by `fork()` that is only read).
+     */
+    void restore(ItemSet src) {
+        assert src.capacity == capacity;
+        root = src.root;
+        size = src.size;
+        owner = new Object();
+    }
+
+    /**
+     * Return the words of the leaf containing `id`, first copying each node on the path to it
+     * that this set may not modify in place (or creating it if it is absent).
+     */
+    private long[] leafFor(int id) {
+        assert id >= 0 && id < capacity;
+        int leaf = id >>> LEAF_SHIFT;
+        root = editable(root, height);
+        Node node = root;
+        for (int h = height; h > 0; h--) {
+            int c = childIndex(leaf, h);
+            node.children[c] = editable(node.children[c], h - 1);
+            node = node.children[c];
+        }
+        return node.words;
+    }
+
+    /**
+     * Return `node` (at height `h`) if this set may modify it in place, otherwise a copy of it (or
+     * a new empty node, if it is null) that this set may modify.
+     */
+    private Node editable(Node node, int h) {
+        if (node == null) {
+            return new Node(owner, h);
+        }
+        return node.owner == owner ? node : new Node(owner, node);
+    }
+
+    /**
+     * Return the index of the child of an interior node at height `h` whose subtree contains leaf
+     * number `leaf`.
+     */
+    private static int childIndex(int leaf, int h) {
+        return (leaf >>> ((h - 1) * BRANCH_SHIFT)) & (BRANCH - 1);
+    }
+
+    /**
+     * Return the smallest id that is at least `from` in the subtree rooted at `node` (at height
+     * `h`), whose first id is `base`, or -1 if there is none.
+     */
+    private static int next(Node node, int h, int base, int from) {
+        if (node == null) {
+            return -1;
+        }
+        int offset = Math.max(0, from - base);
+        if (h == 0) {
+            int w = offset >>> 6;
+            if (w >= LEAF_WORDS) {
+                return -1;
+            }
+            long word = node.words[w] & (-1L << offset);
+            while (true) {
+                if (word != 0) {
+                    return base + w * 64 + Long.numberOfTrailingZeros(word);
+                }
+                if (++w == LEAF_WORDS) {
+                    return -1;
+                }
+                word = node.words[w];
+            }
+        }
+        int shift = LEAF_SHIFT + (h - 1) * BRANCH_SHIFT;
+        for (int c = offset >>> shift; c < BRANCH; c++) {
+            int ret = next(node.children[c], h - 1, base + (c << shift), from);
+            if (ret >= 0) {
+                return ret;
+            }
+        }
+        return -1;
+    }
+}
@@ -3,8 +3,6 @@ package model;
 import graph.MazeGraph.Direction;
 import graph.MazeGraph.MazeEdge;
 import graph.MazeGraph.MazeVertex;
-import graph.Pathfinding;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import model.GameModel.Item;
@@ -14,54 +12,90 @@ import model.Ghost.GhostState;
 public class PacMannAI extends PacMann{
 
     /**
-     * The distance threshold under which Pac-Mann will go from collecting items to escaping ghosts.
+     * The distance threshold (along the maze) under which Pac-Mann will go from collecting items to
+     * escaping ghosts.
      */
-    private static final double ESCAPE_THRESHOLD = 1;
+    private static final double ESCAPE_THRESHOLD = 3;
+
+    /**
+     * The planner that chooses this AI's edges, or null if they are chosen by the greedy rules
+     * below.
+     */
+    private RolloutPlanner planner;
 
     public PacMannAI(GameModel model) {
         super(model);
     }
 
+    /**
+     * Choose edges with `planner` (which must plan for this AI's model) rather than the greedy
+     * rules, or with the greedy rules again if `planner` is null.
+     */
+    public void usePlanner(RolloutPlanner planner) {
+        this.planner = planner;
+    }
+
         /**
          * Returns the next edge that this actor will traverse in the game graph. Will only be called
          * when this actor is standing on a vertex, which must equal the returned edge's tail.
          *
-         * If the Euclidean distance from Pac-Mann to the nearest ghost is less than ESCAPE_THRESHOLD,
-         * returns the edge out of all outgoing edges from Pac-Mann's current vertex whose head vertex
-         * is the maximum distance from the nearest Ghost.
-         *
-         * Otherwise, if there are fleeing ghosts, it returns the edge to take the path of shortest
-         * distance to the closest fleeing ghost.
+         * If there are fleeing ghosts, it returns the edge to take the path of shortest distance to
+         * the closest fleeing ghost.
          *
          * If there are no fleeing ghosts, it returns the edge to take the path of shortest distance
          * to the closest pellet.
          *
          * Otherwise, it returns the edge to the nearest dot.
+         *
+         * However, if the distance along the maze from the nearest chasing ghost to Pac-Mann is
+         * less than ESCAPE_THRESHOLD, and the edge chosen above does not lead further from that
+         * ghost, returns the edge out of all outgoing edges from Pac-Mann's current vertex whose
+         * head vertex is the maximum distance from the nearest chasing Ghost.  (A chasing ghost
+         * that keeps pace with Pac-Mann may stay within the threshold indefinitely, so Pac-Mann
+         * must keep collecting items while it runs from it.)
+         *
+         * If a planner is in use, the edge chosen by the above rules is overridden if the
+         * planner's rollouts find another edge to be clearly better.
          */
         @Override
     public MazeEdge nextEdge() {
+        MazeEdge greedy = greedyNextEdge();
+        return planner == null ? greedy : planner.bestEdge(greedy);
+    }
+
+    /**
+     * Returns the next edge chosen by the greedy rules documented by `nextEdge()`.
+     */
+    private MazeEdge greedyNextEdge() {
         MazeVertex start = model.pacMann().nearestVertex();
-        MazeEdge prevEdge = model.pacMann().location().edge();
-        List<MazeVertex> pellets = getVerticesWithItem(Item.PELLET);
-        List<MazeVertex> dots = getVerticesWithItem(Item.DOT);
+        MazeEdge goal = goalEdge();
 
-        //Escape chasing ghosts
+        //Escape chasing ghosts, unless the way to the goal already leads away from them
         double shortestGhost = shortestGhostDistance(start);
-        if(shortestGhost < ESCAPE_THRESHOLD){
+        if(shortestGhost < ESCAPE_THRESHOLD
+                && (goal == null || shortestGhostDistance(goal.head()) <= shortestGhost)){
             return maximizeShortestChasingGhostDistance();
         }
+        return goal;
+    }
 
+    /**
+     * Returns the edge towards Pac-Mann's current goal (a fleeing ghost, a pellet or a dot) chosen
+     * by the rules documented by `nextEdge()`, ignoring chasing ghosts.
+     */
+    private MazeEdge goalEdge() {
         //Chase nearest fleeing ghost
         if(closestFleeingGhost() != null){
             return chaseClosestGhostEdge();
         }
 
         //Go towards nearest pellet if there are pellets remaining and multiple ghosts are chasing
-        if(!pellets.isEmpty() && countChasingGhosts() >= 3 || dots.isEmpty()){
-            return edgeToClosestVertex(pellets);
+        if(model.numItems(Item.PELLET) > 0 && countChasingGhosts() >= 3
+                || model.numItems(Item.DOT) == 0){
+            return edgeToClosestItem(Item.PELLET);
         }
         else{
-            return edgeToClosestVertex(dots);
+            return edgeToClosestItem(Item.DOT);
         }
     }
 
@@ -72,14 +106,13 @@ public class PacMannAI extends PacMann{
      */
 
     /**
-     * Returns the edge Pac-Mann should take to reach the closest vertex in `targets`.
-     * Returns null if `targets` is empty.
+     * Returns the edge Pac-Mann should take to reach the vertex containing `item` that is closest
+     * to him along the maze.  Returns null if no other vertex containing `item` can be reached.
      */
-    private MazeEdge edgeToClosestVertex(List<MazeVertex> targets) {
-        if (targets.isEmpty()) return null;
+    private MazeEdge edgeToClosestItem(Item item) {
         MazeVertex pacVertex = model.pacMann().location().nearestVertex();
-        MazeVertex nearest = closestVertex(pacVertex, targets);
-        return bestFirstStep(pacVertex, nearest, model.pacMann().location().edge());
+        List<MazeEdge> path = model.pathToNearestItem(item, pacVertex);
+        return path == null ? null : path.getFirst();
 
     }
     /*
@@ -161,21 +194,11 @@ public class PacMannAI extends PacMann{
 
 
     /**
-     * Returns the shortest distance to a ghost that is in the chase state from a MazeVertex v.
-     * Returns Double.POSITIVE_INFINITY if no ghosts are in the chase state.
+     * Returns the shortest distance along the maze from a ghost that is in the chase state to a
+     * MazeVertex v.  Returns Double.POSITIVE_INFINITY if no ghosts are in the chase state.
      */
     private double shortestGhostDistance(MazeVertex v){
-        //Check for how close nearest chasing ghosts are
-        double closestGhost = Double.POSITIVE_INFINITY;
-
-        for(Actor a : model.actors()){
-            if(a instanceof Ghost g && g.state() == GhostState.CHASE){
-                double dist = distance(v, g.nearestVertex());
-                closestGhost = (Math.min(dist, closestGhost));
-            }
-        }
-
-        return closestGhost;
+        return model.dangerAt(v);
     }
 
     /*
@@ -196,42 +219,16 @@ public class PacMannAI extends PacMann{
         return Math.sqrt(dx * dx + dy * dy);
     }
 
-    private List<MazeVertex> getVerticesWithItem(Item item) {
-        List<MazeVertex> result = new ArrayList<>();
-        for (MazeVertex v : model.graph().vertices()) {
-            if (model.itemAt(v) == item) {
-                result.add(v);
-            }
-        }
-        return result;
-    }
-    /**
-     * Gets the nearest vertex from a list
-     */
-    private MazeVertex closestVertex(MazeVertex start, List<MazeVertex> candidates) {
-        MazeVertex best = null;
-        double bestDist = Double.POSITIVE_INFINITY;
-
-        for (MazeVertex v : candidates) {
-            double d = distance(start, v);
-            if (d < bestDist) {
-                bestDist = d;
-                best = v;
-            }
-        }
-        return best;
-    }
-
     /**
      * Returns the best first step to a target vertex from a starting vertex given a prevEdge.
      *
      */
     private MazeEdge bestFirstStep(MazeVertex start, MazeVertex target, MazeEdge prevEdge) {
-        List<MazeEdge> path = Pathfinding.shortestNonBacktrackingPath(start, target, null);
+        MazeEdge first = model.graph().distances().nextEdge(start, target, null);
 
         // If path is valid, use it
-        if (path != null && !path.isEmpty()) {
-            return path.get(0);
+        if (first != null) {
+            return first;
         }
 
         // Fallback: choose greedy best outgoing edge
@@ -0,0 +1,207 @@
+package model;
+
+import graph.MazeGraph.MazeEdge;
+import graph.MazeGraph.MazeVertex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.GameModel.GameState;
+import util.Randomness;
+
+/**
+ * Chooses PacMann's next edge by Monte-Carlo rollouts: each edge out of his current vertex is
+ * evaluated by restoring copies of the game to its current state, starting PacMann along that
+ * edge, and simulating a short future in which he is steered by the (greedy) `PacMannAI`.  An
+ * edge's value is the mean over its rollouts of the points scored, less a penalty if PacMann was
+ * caught (or plus a bonus if he won), where points scored later in a rollout are discounted.
+ * Since the rollout policy soon converges on the same route whichever edge it starts along, many
+ * edges have nearly equal values, so the edge preferred by the caller (e.g., the greedy choice) is
+ * kept unless another edge is better by a clear margin (in practice, unless PacMann is caught in
+ * many of the preferred edge's rollouts but not another's); otherwise PacMann would dither
+ * between edges whose values differ only by noise.
+ * <p>
+ * Rollouts are run on one copy of the game per worker; the first worker runs on the calling
+ * thread and the rest are forked as tasks in the caller's fork-join pool (or in the common pool if
+ * the caller is not running in one), so a planner never uses more threads than the pool that runs
+ * its game.  With a single worker and no time budget, decisions are reproducible.
+ */
+public class RolloutPlanner {
+
+    /**
+     * How a planner spends its effort on each decision.
+     *
+     * @param timeBudget      the wall-clock time after which no more rollouts are started [ms]
+     *                        (every edge is always evaluated at least once)
+     * @param rolloutsPerEdge the maximum number of rollouts of each edge
+     * @param horizon         the amount of game time simulated by each rollout [ms]
+     * @param numWorkers      the number of copies of the game to run rollouts on in parallel
+     */
+    public record Config(double timeBudget, int rolloutsPerEdge, double horizon, int numWorkers) {
+
+    }
+
+    /**
+     * The default configuration: 4 rollouts of each edge, simulating 2 seconds of game time each,
+     * on a single worker with no time budget.
+     */
+    public static final Config DEFAULT_CONFIG =
+            new Config(Double.POSITIVE_INFINITY, 4, 2000, 1);
+
+    /**
+     * The value deducted from a rollout in which PacMann loses a life.
+     */
+    private static final double CAUGHT_PENALTY = 2000;
+
+    /**
+     * The value added to a rollout in which PacMann eats all of the items.
+     */
+    private static final double VICTORY_BONUS = 10000;
+
+    /**
+     * The number of equal intervals into which each rollout's horizon is divided.
+     */
+    private static final int NUM_INTERVALS = 4;
+
+    /**
+     * The factor by which the value of an outcome in each interval of a rollout is discounted
+     * relative to the previous interval.
+     */
+    private static final double DISCOUNT = 0.8;
+
+    /**
+     * The amount by which another edge's value must exceed that of the preferred edge for it to
+     * be chosen instead.
+     */
+    private static final double OVERRIDE_MARGIN = CAUGHT_PENALTY / 2;
+
+    /**
+     * The game whose decisions are being planned.
+     */
+    private final GameModel model;
+
+    /**
+     * How effort is spent on each decision.
+     */
+    private final Config config;
+
+    /**
+     * The copies of `model` on which each worker runs its rollouts.
+     */
+    private final GameModel[] workers;
+
+    /**
+     * Create a planner for PacMann's decisions in `model`, whose copies' random choices are driven
+     * by `randomness`.  Requires `config.numWorkers() >= 1` and `config.rolloutsPerEdge() >= 1`.
+     */
+    public RolloutPlanner(GameModel model, Config config, Randomness randomness) {
+        assert config.numWorkers() >= 1 && config.rolloutsPerEdge() >= 1;
+        this.model = model;
+        this.config = config;
+        workers = new GameModel[config.numWorkers()];
+        for (int w = 0; w < workers.length; w++) {
+            workers[w] = model.copy(randomness.randomnessFor("RolloutWorker" + w));
+        }
+    }
+
+    /**
+     * Return `preferred` (if it is not null) unless another edge out of PacMann's current vertex
+     * has an estimated value greater than its own by more than `OVERRIDE_MARGIN`, in which case
+     * return the edge with the greatest estimated value (ties broken in favor of the edge that
+     * comes first in the vertex's `outgoingEdges()`).  Requires that PacMann is standing on a
+     * vertex.
+     */
+    public MazeEdge bestEdge(MazeEdge preferred) {
+        MazeVertex v = model.pacMann().nearestVertex();
+        List<MazeEdge> edges = new ArrayList<>();
+        for (MazeEdge e : v.outgoingEdges()) {
+            edges.add(e);
+        }
+        if (edges.size() <= 1) {
+            return edges.isEmpty() ? null : edges.getFirst();
+        }
+
+        GameModel.Snapshot root = model.snapshot();
+        int numTasks = edges.size() * config.rolloutsPerEdge();
+        long deadline = config.timeBudget() == Double.POSITIVE_INFINITY ? Long.MAX_VALUE
+                : System.nanoTime() + (long) (config.timeBudget() * 1e6);
+        AtomicInteger nextTask = new AtomicInteger();
+        double[][] totals = new double[workers.length][edges.size()];
+        int[][] counts = new int[workers.length][edges.size()];
+
+        List<ForkJoinTask<?>> helpers = new ArrayList<>(workers.length - 1);
+        for (int w = 1; w < workers.length; w++) {
+            int finalW = w;
+            helpers.add(ForkJoinTask.adapt(() -> runRollouts(workers[finalW], root, edges,
+                    numTasks, deadline, nextTask, totals[finalW], counts[finalW])).fork());
+        }
+        runRollouts(workers[0], root, edges, numTasks, deadline, nextTask, totals[0], counts[0]);
+        for (ForkJoinTask<?> helper : helpers) {
+            helper.join();
+        }
+
+        MazeEdge best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        double preferredValue = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < edges.size(); k++) {
+            double total = 0;
+            int count = 0;
+            for (int w = 0; w < workers.length; w++) {
+                total += totals[w][k];
+                count += counts[w][k];
+            }
+            double value = total / count;
+            if (value > bestValue) {
+                best = edges.get(k);
+                bestValue = value;
+            }
+            if (edges.get(k).equals(preferred)) {
+                preferredValue = value;
+            }
+        }
+        return bestValue - preferredValue > OVERRIDE_MARGIN ? best : preferred;
+    }
+
+    /**
+     * Repeatedly claim the next of `numTasks` rollouts and run it on `copy`, until all have been
+     * claimed or (once every edge has been claimed at least once) `deadline` has passed.  Rollout
+     * `t` evaluates edge `t % edges.size()`; its value is added to `totals` and counted in
+     * `counts`, which are indexed like `edges`.
+     */
+    private void runRollouts(GameModel copy, GameModel.Snapshot root, List<MazeEdge> edges,
+            int numTasks, long deadline, AtomicInteger nextTask, double[] totals, int[] counts) {
+        for (int t = nextTask.getAndIncrement(); t < numTasks; t = nextTask.getAndIncrement()) {
+            if (t >= edges.size() && System.nanoTime() > deadline) {
+                return;
+            }
+            int k = t % edges.size();
+            totals[k] += rollout(copy, root, edges.get(k));
+            counts[k] += 1;
+        }
+    }
+
+    /**
+     * Restore `copy` to `root`, start PacMann along `first`, simulate up to `config.horizon()` ms
+     * of game time (stopping early if PacMann is caught or wins), and return the discounted value
+     * of the outcome.
+     */
+    private double rollout(GameModel copy, GameModel.Snapshot root, MazeEdge first) {
+        copy.restore(root);
+        copy.pacMann().traverseEdge(first);
+
+        double value = 0;
+        double weight = 1;
+        for (int i = 0; i < NUM_INTERVALS; i++) {
+            int score = copy.score();
+            copy.updateActors(config.horizon() / NUM_INTERVALS);
+            value += weight * (copy.score() - score);
+            if (copy.numLives() < root.numLives()) {
+                return value - weight * CAUGHT_PENALTY;
+            } else if (copy.state() == GameState.VICTORY) {
+                return value + weight * VICTORY_BONUS;
+            }
+            weight *= DISCOUNT;
+        }
+        return value;
+    }
+}
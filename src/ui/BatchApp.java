@@ -1,7 +1,22 @@
 package ui;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import graph.DistanceTable;
 import model.GameModel;
 import model.GameModel.GameState;
+import model.GameModel.SimulationMode;
+import model.PacMannAI;
+import model.RolloutPlanner;
+import util.GameMap;
+import util.MazeCorpus;
 import util.Randomness;
 
 /**
@@ -9,6 +24,31 @@ import util.Randomness;
  */
 public class BatchApp {
 
+    /**
+     * The outcome of a single batch game, recorded so that games played on worker threads can be
+     * reported in seed order.
+     */
+    record GameResult(long seed, GameState state, int score, double time, int numLives,
+                      long numSteps, long numDegenerateSteps) {
+
+    }
+
+    /**
+     * How a batch game is simulated.  The game is played as a sequence of frames of `frameDt` ms
+     * of game time (a single frame if infinite), until it ends or `timeBudget` ms of game time
+     * have elapsed.  Each frame takes at most `maxSubsteps` steps, so a game takes at most
+     * `maxSubsteps * ceil(timeBudget / frameDt)` steps however its actors behave.
+     */
+    record SimulationLimits(double timeBudget, double frameDt, int maxSubsteps) {
+
+    }
+
+    /**
+     * The default limits: one hour of game time, in a single frame of at most ten million steps.
+     */
+    static final SimulationLimits DEFAULT_LIMITS =
+            new SimulationLimits(3_600_000, Double.POSITIVE_INFINITY, 10_000_000);
+
     private GameModel model;
 
     public BatchApp(GameModel model) {
@@ -25,22 +65,92 @@ public class BatchApp {
     }
 
     public GameModel.GameState play() {
-        long startTime = System.currentTimeMillis();
-        while (model.state() != GameState.VICTORY && model.state() != GameState.DEFEAT
-            && System.currentTimeMillis() - startTime <= 600000) { // 10 minute timeout
-            model.updateActors(Double.POSITIVE_INFINITY);
+        return play(DEFAULT_LIMITS);
+    }
+
+    /**
+     * Play the game until it ends or exceeds `limits`, and return its final state (which is
+     * PLAYING or READY if the limits were exceeded).  The outcome depends only on the game and
+     * the limits, never on how fast the game is simulated.
+     */
+    public GameModel.GameState play(SimulationLimits limits) {
+        double frameDt = Math.min(limits.frameDt(), limits.timeBudget());
+        long numFrames = (long) Math.ceil(limits.timeBudget() / frameDt);
+        double frameEnd = 0;
+        for (long k = 0; k < numFrames && !ended(); k++) {
+            // Frames end at fixed times, so a frame cut short by the substep cap is not made up
+            frameEnd = Math.min(frameEnd + frameDt, limits.timeBudget());
+            long frameStart = model.numSteps();
+            // `updateActors()` also returns early when PacMann loses a life
+            while (!ended() && model.time() < frameEnd) {
+                long remaining = limits.maxSubsteps() - (model.numSteps() - frameStart);
+                if (remaining <= 0) {
+                    break;
+                }
+                model.setMaxSubsteps((int) remaining);
+                model.updateActors(frameEnd - model.time());
+            }
         }
         return model.state();
     }
 
+    /**
+     * Return whether the game has been won or lost.
+     */
+    private boolean ended() {
+        return model.state() == GameState.VICTORY || model.state() == GameState.DEFEAT;
+    }
+
+    /**
+     * Play a new `width` x `height` game with `numGhosts` ghosts, driven by `randomness` and
+     * simulated in `mode`, until it ends or exceeds `limits`, and return its result.  Its maze is
+     * taken from `corpus` (which must contain mazes of that size) if it is not null, and is
+     * generated otherwise.  PacMann is steered by a `RolloutPlanner` configured by `planning`, or
+     * by the greedy AI if `planning` is null.  The AI's table of shortest paths through the maze
+     * may use up to `tableBytes` bytes.  Games share no mutable state, so this may be called
+     * concurrently from multiple threads.
+     */
+    static GameResult playGame(int width, int height, int numGhosts, Randomness randomness,
+            MazeCorpus corpus, SimulationMode mode, SimulationLimits limits,
+            RolloutPlanner.Config planning, long tableBytes) {
+        GameMap map = corpus == null ? GameMap.generate(width, height, randomness)
+                : corpus.map(randomness);
+        var controller = new BatchApp(GameModel.newGame(map, true, randomness, numGhosts));
+        controller.model().graph().setDistanceTableBudget(tableBytes);
+        if (planning != null) {
+            GameModel game = controller.model();
+            ((PacMannAI) game.pacMann()).usePlanner(new RolloutPlanner(game, planning,
+                    randomness.randomnessFor("RolloutPlanner")));
+        }
+        controller.model().setSimulationMode(mode);
+        controller.play(limits);
+        var model = controller.model();
+        return new GameResult(randomness.seed(), model.state(), model.score(), model.time(),
+                model.numLives(), model.numSteps(), model.numDegenerateSteps());
+    }
+
     public static void main(String[] args) {
 
         // Default configuration parameters
         int width = 10;
         int height = 10;
         int numGames = 20;
+        // Default to one worker per available core
+        int numThreads = Runtime.getRuntime().availableProcessors();
         // Default to a different seed every time
         long seed = System.currentTimeMillis();
+        SimulationMode mode = SimulationMode.STEPPED;
+        int numGhosts = GameModel.STANDARD_NUM_GHOSTS;
+        double timeBudget = DEFAULT_LIMITS.timeBudget();
+        double frameDt = DEFAULT_LIMITS.frameDt();
+        int maxSubsteps = DEFAULT_LIMITS.maxSubsteps();
+        boolean rollouts = false;
+        double planBudget = RolloutPlanner.DEFAULT_CONFIG.timeBudget();
+        int rolloutsPerEdge = RolloutPlanner.DEFAULT_CONFIG.rolloutsPerEdge();
+        double horizon = RolloutPlanner.DEFAULT_CONFIG.horizon();
+        int numWorkers = RolloutPlanner.DEFAULT_CONFIG.numWorkers();
+        long tableBytes = DistanceTable.DEFAULT_MAX_BYTES;
+        Path corpusFile = null;
 
         for (String arg : args) {
             if (arg.startsWith("w=")) {
@@ -57,9 +167,96 @@ public class BatchApp {
                 seed = Long.parseLong(arg.substring(5));
             } else if (arg.startsWith("n=")) {
                 numGames = Integer.parseInt(arg.substring(2));
+            } else if (arg.startsWith("threads=")) {
+                numThreads = Integer.parseInt(arg.substring(8));
+                if (numThreads < 1) {
+                    throw new IllegalArgumentException("Number of threads must be at least 1.");
+                }
+            } else if (arg.startsWith("sim=")) {
+                mode = switch (arg.substring(4)) {
+                    case "step" -> SimulationMode.STEPPED;
+                    case "event" -> SimulationMode.EVENT_DRIVEN;
+                    default -> throw new IllegalArgumentException(
+                            "Simulation mode must be \"step\" or \"event\".");
+                };
+            } else if (arg.startsWith("ghosts=")) {
+                numGhosts = Integer.parseInt(arg.substring(7));
+                if (numGhosts < 0) {
+                    throw new IllegalArgumentException("Number of ghosts must not be negative.");
+                }
+            } else if (arg.startsWith("budgetS=")) {
+                timeBudget = 1000 * Double.parseDouble(arg.substring(8));
+                if (!(timeBudget > 0)) {
+                    throw new IllegalArgumentException("Time budget must be positive.");
+                }
+            } else if (arg.startsWith("dtMs=")) {
+                frameDt = Double.parseDouble(arg.substring(5));
+                if (!(frameDt > 0)) {
+                    throw new IllegalArgumentException("Frame duration must be positive.");
+                }
+            } else if (arg.startsWith("substeps=")) {
+                maxSubsteps = Integer.parseInt(arg.substring(9));
+                if (maxSubsteps < 1) {
+                    throw new IllegalArgumentException("Substep cap must be at least 1.");
+                }
+            } else if (arg.startsWith("ai=")) {
+                rollouts = switch (arg.substring(3)) {
+                    case "greedy" -> false;
+                    case "rollout" -> true;
+                    default -> throw new IllegalArgumentException(
+                            "AI must be \"greedy\" or \"rollout\".");
+                };
+            } else if (arg.startsWith("planMs=")) {
+                planBudget = Double.parseDouble(arg.substring(7));
+                if (!(planBudget > 0)) {
+                    throw new IllegalArgumentException("Planning budget must be positive.");
+                }
+            } else if (arg.startsWith("rollouts=")) {
+                rolloutsPerEdge = Integer.parseInt(arg.substring(9));
+                if (rolloutsPerEdge < 1) {
+                    throw new IllegalArgumentException("Number of rollouts must be at least 1.");
+                }
+            } else if (arg.startsWith("horizonMs=")) {
+                horizon = Double.parseDouble(arg.substring(10));
+                if (!(horizon > 0)) {
+                    throw new IllegalArgumentException("Rollout horizon must be positive.");
+                }
+            } else if (arg.startsWith("workers=")) {
+                numWorkers = Integer.parseInt(arg.substring(8));
+                if (numWorkers < 1) {
+                    throw new IllegalArgumentException("Number of workers must be at least 1.");
+                }
+            } else if (arg.startsWith("tableMb=")) {
+                tableBytes = (long) (Double.parseDouble(arg.substring(8)) * (1 << 20));
+                if (tableBytes < 1) {
+                    throw new IllegalArgumentException("Distance table budget must be positive.");
+                }
+            } else if (arg.startsWith("corpus=")) {
+                corpusFile = Path.of(arg.substring(7));
             } else {
                 throw new IllegalArgumentException("Unable to interpret argument: " + arg +
-                        "\n Usage: java BatchApp [h=<##>] [w=<##>] [seed=<##>] [n=<##>]");
+                        "\n Usage: java BatchApp [h=<##>] [w=<##>] [seed=<##>] [n=<##>] [threads=<##>]"
+                        + " [sim=<step|event>] [ghosts=<##>] [budgetS=<s>] [dtMs=<ms>]"
+                        + " [substeps=<##>] [ai=<greedy|rollout>] [planMs=<ms>] [rollouts=<##>]"
+                        + " [horizonMs=<ms>] [workers=<##>] [tableMb=<MB>] [corpus=<path>]"
+                        + "\n Each option's unit is part of its name: budgetS is in seconds of game"
+                        + " time, dtMs and horizonMs in milliseconds of game time, planMs in"
+                        + " milliseconds of wall-clock time, and tableMb in megabytes.");
+            }
+        }
+
+        // Mazes not in the corpus are generated as needed
+        MazeCorpus corpus = null;
+        if (corpusFile != null) {
+            try {
+                corpus = MazeCorpus.open(corpusFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to open maze corpus: " + corpusFile, e);
+            }
+            if (corpus.width() != width || corpus.height() != height) {
+                throw new IllegalArgumentException("Maze corpus contains " + corpus.width() + "x"
+                        + corpus.height() + " mazes, but the board is " + width + "x" + height
+                        + ".");
             }
         }
 
@@ -67,34 +264,66 @@ public class BatchApp {
         System.out.println("Randomness seed: " + seed);
 
         Randomness randomness = new Randomness(seed);
-        var controller = new BatchApp(null);
+        SimulationLimits limits = new SimulationLimits(timeBudget, frameDt, maxSubsteps);
+        RolloutPlanner.Config planning = rollouts
+                ? new RolloutPlanner.Config(planBudget, rolloutsPerEdge, horizon, numWorkers)
+                : null;
 
         // Track statistics
         int numWins = 0;
-        int totalScore = 0;
+        long totalScore = 0;
         int maxScore = 0;
         long bestSeed = randomness.seed();
+        long totalSteps = 0;
+        long totalDegenerateSteps = 0;
 
-        System.out.printf("%4s  %7s  %5s  %8s  %5s\n",
-                "Game", "Result", "Score", "Time [s]", "Lives");
-        for (int i = 0; i < numGames; i += 1) {
-            controller.setModel(GameModel.newGame(width, height, true, randomness));
-            controller.play();
-            var model = controller.model();
+        System.out.printf("%4s  %7s  %5s  %8s  %5s  %9s  %9s\n",
+                "Game", "Result", "Score", "Time [s]", "Lives", "Steps", "Degen");
 
-            // Update statistics
-            if (model.state() == GameState.VICTORY) {
-                numWins += 1;
-            }
-            totalScore += model.score();
-            if (model.score() > maxScore) {
-                maxScore = model.score();
-                bestSeed = randomness.seed();
+        // Games are independent, so play them on a pool of workers.  Results are collected in
+        //  submission order, so output is identical to that of a sequential run.
+        ExecutorService pool = new ForkJoinPool(numThreads);
+        try {
+            List<Future<GameResult>> results = new ArrayList<>(numGames);
+            for (int i = 0; i < numGames; i += 1) {
+                Randomness gameRandomness = randomness;
+                int finalWidth = width;
+                int finalHeight = height;
+                int finalNumGhosts = numGhosts;
+                SimulationMode finalMode = mode;
+                MazeCorpus finalCorpus = corpus;
+                long finalTableBytes = tableBytes;
+                results.add(pool.submit(() -> playGame(finalWidth, finalHeight, finalNumGhosts,
+                        gameRandomness, finalCorpus, finalMode, limits, planning,
+                        finalTableBytes)));
+                randomness = randomness.next();
             }
-            System.out.printf("%4d  %7s  %5d  %8.3f  %5d\n",
-                    i+1, model.state(), model.score(), model.time() / 1000.0, model.numLives());
 
-            randomness = randomness.next();
+            for (int i = 0; i < numGames; i += 1) {
+                GameResult result = results.get(i).get();
+
+                // Update statistics
+                if (result.state() == GameState.VICTORY) {
+                    numWins += 1;
+                }
+                totalScore += result.score();
+                if (result.score() > maxScore) {
+                    maxScore = result.score();
+                    bestSeed = result.seed();
+                }
+                totalSteps += result.numSteps();
+                totalDegenerateSteps += result.numDegenerateSteps();
+                System.out.printf("%4d  %7s  %5d  %8.3f  %5d  %9d  %9d\n",
+                        i+1, result.state(), result.score(), result.time() / 1000.0,
+                        result.numLives(), result.numSteps(), result.numDegenerateSteps());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for batch games", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Batch game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
         }
 
         // Report statistics
@@ -103,5 +332,7 @@ public class BatchApp {
                 numWins, numGames, 100.0 * numWins / numGames);
         System.out.printf("Average score: %.1f\n", (double) totalScore / numGames);
         System.out.printf("Best score: %d (seed: %d)\n", maxScore, bestSeed);
+        System.out.printf("Degenerate steps: %d / %d (%.3f %%)\n", totalDegenerateSteps,
+                totalSteps, 100.0 * totalDegenerateSteps / totalSteps);
     }
 }
@@ -0,0 +1,69 @@
+package ui;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import util.MazeCorpus;
+
+/**
+ * Pre-generate the mazes for a range of seeds and write them to a `MazeCorpus` file, which
+ * `BatchApp` can then load instead of generating them.
+ */
+public class CorpusApp {
+
+    public static void main(String[] args) {
+
+        // Default configuration parameters
+        Path file = null;
+        int width = 10;
+        int height = 10;
+        long seed = 0;
+        int count = 1000;
+        // Default to one worker per available core
+        int numThreads = Runtime.getRuntime().availableProcessors();
+
+        for (String arg : args) {
+            if (arg.startsWith("file=")) {
+                file = Path.of(arg.substring(5));
+            } else if (arg.startsWith("w=")) {
+                width = Integer.parseInt(arg.substring(2));
+                if (width < 4) {
+                    throw new IllegalArgumentException("Board width must be at least 4.");
+                }
+            } else if (arg.startsWith("h=")) {
+                height = Integer.parseInt(arg.substring(2));
+                if (height < 3) {
+                    throw new IllegalArgumentException("Board height must be at least 3.");
+                }
+            } else if (arg.startsWith("seed=")) {
+                seed = Long.parseLong(arg.substring(5));
+            } else if (arg.startsWith("n=")) {
+                count = Integer.parseInt(arg.substring(2));
+                if (count < 0) {
+                    throw new IllegalArgumentException("Number of mazes must not be negative.");
+                }
+            } else if (arg.startsWith("threads=")) {
+                numThreads = Integer.parseInt(arg.substring(8));
+                if (numThreads < 1) {
+                    throw new IllegalArgumentException("Number of threads must be at least 1.");
+                }
+            } else {
+                throw new IllegalArgumentException("Unable to interpret argument: " + arg +
+                        "\n Usage: java CorpusApp file=<path> [h=<##>] [w=<##>] [seed=<##>]"
+                        + " [n=<##>] [threads=<##>]");
+            }
+        }
+        if (file == null) {
+            throw new IllegalArgumentException("An output file must be given with file=<path>.");
+        }
+
+        long start = System.nanoTime();
+        try {
+            MazeCorpus.write(file, width, height, seed, count, numThreads);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write maze corpus: " + file, e);
+        }
+        System.out.printf("Wrote %d %dx%d mazes (seeds %d to %d) to %s in %.3f s\n", count,
+                width, height, seed, seed + count - 1, file, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -25,6 +25,7 @@ import graph.MazeGraph.Direction;
 import graph.MazeGraph.MazeEdge;
 import model.PacMann;
 import util.GameMap;
+import util.TileGrid;
 import ui.Tile.TileType;
 
 public class GameBoard extends JPanel {
@@ -93,11 +94,12 @@ public class GameBoard extends JPanel {
             tileGrid = new Tile[width][height];
             for (int i = 0; i < width; i++) {
                 for (int j = 0; j < height; j++) {
-                    if (map.types()[i][j] == MazeGenerator.TileType.WALL) {
+                    if (map.types().get(i, j) == MazeGenerator.TileType.WALL) {
                         tileGrid[i][j] = new Tile(getWallType(map.types(), i, j), i, j,
-                                map.elevations()[i][j]);
+                                map.elevations().get(i, j));
                     } else {
-                        tileGrid[i][j] = new Tile(new TileType(0, 0), i, j, map.elevations()[i][j]);
+                        tileGrid[i][j] = new Tile(new TileType(0, 0), i, j,
+                                map.elevations().get(i, j));
                     }
                 }
             }
@@ -161,20 +163,16 @@ public class GameBoard extends JPanel {
      */
     private void paintItems (Graphics2D g2){
         g2.setColor(Color.WHITE);
-        for(MazeVertex v : model.graph().vertices()){
-            GameModel.Item item = model.itemAt(v);
-            if(item == Item.NONE){
-                continue;
-            }
-
-            double cx = v.loc().i() + 0.5;
-            double cy = v.loc().j() + 0.5;
+        for(Item item : new Item[]{Item.DOT, Item.PELLET}){
             double diameter = (item == Item.DOT) ? 0.3 : 0.7;
-
             double r = diameter / 2.0;
-            Ellipse2D.Double circle = new Ellipse2D.Double(cx - r, cy - r, diameter, diameter);
+            for(MazeVertex v : model.verticesWithItem(item)){
+                double cx = v.loc().i() + 0.5;
+                double cy = v.loc().j() + 0.5;
+                Ellipse2D.Double circle = new Ellipse2D.Double(cx - r, cy - r, diameter, diameter);
 
-            g2.fill(circle);
+                g2.fill(circle);
+            }
         }
 
 
@@ -310,63 +308,63 @@ public class GameBoard extends JPanel {
      * Return the type of wall tile that should be drawn in a particular location. This is
      * determined based on whether the surrounding tiles are paths or walls.
      */
-    private TileType getWallType(MazeGenerator.TileType[][] types, int i, int j) {
+    private TileType getWallType(TileGrid types, int i, int j) {
         // left tunnel edges
         if (i == 0 && j > 1 && j < model.height() - 2) {
-            if (types[i][j - 2] != MazeGenerator.TileType.WALL) {
+            if (types.get(i, j - 2) != MazeGenerator.TileType.WALL) {
                 return new TileType(4, 3);
-            } else if (types[i][j - 1] != MazeGenerator.TileType.WALL) {
+            } else if (types.get(i, j - 1) != MazeGenerator.TileType.WALL) {
                 return new TileType(3, 2);
-            } else if (types[i][j + 1] != MazeGenerator.TileType.WALL) {
+            } else if (types.get(i, j + 1) != MazeGenerator.TileType.WALL) {
                 return new TileType(3, 0);
-            } else if (types[i][j + 2] != MazeGenerator.TileType.WALL) {
+            } else if (types.get(i, j + 2) != MazeGenerator.TileType.WALL) {
                 return new TileType(4, 0);
             }
         }
 
         // right tunnel edges
         if (i == model.width() - 1 && j > 1 && j < model.height() - 2) {
-            if (types[i][j - 2] != MazeGenerator.TileType.WALL) {
+            if (types.get(i, j - 2) != MazeGenerator.TileType.WALL) {
                 return new TileType(4, 2);
-            } else if (types[i][j - 1] != MazeGenerator.TileType.WALL) {
+            } else if (types.get(i, j - 1) != MazeGenerator.TileType.WALL) {
                 return new TileType(3, 2);
-            } else if (types[i][j + 1] != MazeGenerator.TileType.WALL) {
+            } else if (types.get(i, j + 1) != MazeGenerator.TileType.WALL) {
                 return new TileType(3, 0);
-            } else if (types[i][j + 2] != MazeGenerator.TileType.WALL) {
+            } else if (types.get(i, j + 2) != MazeGenerator.TileType.WALL) {
                 return new TileType(4, 1);
             }
         }
 
         // top tunnel edges
         if (j == 0 && i > 1 && i < model.width() - 2) {
-            if (types[i - 2][j] != MazeGenerator.TileType.WALL) {
+            if (types.get(i - 2, j) != MazeGenerator.TileType.WALL) {
                 return new TileType(4, 1);
-            } else if (types[i - 1][j] != MazeGenerator.TileType.WALL) {
+            } else if (types.get(i - 1, j) != MazeGenerator.TileType.WALL) {
                 return new TileType(3, 1);
-            } else if (types[i + 1][j] != MazeGenerator.TileType.WALL) {
+            } else if (types.get(i + 1, j) != MazeGenerator.TileType.WALL) {
                 return new TileType(3, 3);
-            } else if (types[i + 2][j] != MazeGenerator.TileType.WALL) {
+            } else if (types.get(i + 2, j) != MazeGenerator.TileType.WALL) {
                 return new TileType(4, 0);
             }
         }
 
         // bottom tunnel edges
         if (j == model.height() - 1 && i > 1 && i < model.width() - 2) {
-            if (types[i - 2][j] != MazeGenerator.TileType.WALL) {
+            if (types.get(i - 2, j) != MazeGenerator.TileType.WALL) {
                 return new TileType(4, 2);
-            } else if (types[i - 1][j] != MazeGenerator.TileType.WALL) {
+            } else if (types.get(i - 1, j) != MazeGenerator.TileType.WALL) {
                 return new TileType(3, 1);
-            } else if (types[i + 1][j] != MazeGenerator.TileType.WALL) {
+            } else if (types.get(i + 1, j) != MazeGenerator.TileType.WALL) {
                 return new TileType(3, 3);
-            } else if (types[i + 2][j] != MazeGenerator.TileType.WALL) {
+            } else if (types.get(i + 2, j) != MazeGenerator.TileType.WALL) {
                 return new TileType(4, 3);
             }
         }
 
-        int up = j > 0 && types[i][j - 1] == MazeGenerator.TileType.WALL ? 1 : 0;
-        int down = j < model.height() - 1 && types[i][j + 1] == MazeGenerator.TileType.WALL ? 1 : 0;
-        int left = i > 0 && types[i - 1][j] == MazeGenerator.TileType.WALL ? 1 : 0;
-        int right = i < model.width() - 1 && types[i + 1][j] == MazeGenerator.TileType.WALL ? 1 : 0;
+        int up = j > 0 && types.get(i, j - 1) == MazeGenerator.TileType.WALL ? 1 : 0;
+        int down = j < model.height() - 1 && types.get(i, j + 1) == MazeGenerator.TileType.WALL ? 1 : 0;
+        int left = i > 0 && types.get(i - 1, j) == MazeGenerator.TileType.WALL ? 1 : 0;
+        int right = i < model.width() - 1 && types.get(i + 1, j) == MazeGenerator.TileType.WALL ? 1 : 0;
         int numWalls = up + down + left + right;
 
         if (numWalls == 2) { // wall cap
@@ -374,11 +372,11 @@ public class GameBoard extends JPanel {
         } else if (numWalls == 3) { // wall side
             return new TileType(3, 2 * down + left - right);
         } else { // wall joint
-            if (types[i + 1][j - 1] != MazeGenerator.TileType.WALL) { // northeast
+            if (types.get(i + 1, j - 1) != MazeGenerator.TileType.WALL) { // northeast
                 return new TileType(4, 1);
-            } else if (types[i - 1][j - 1] != MazeGenerator.TileType.WALL) { // northwest
+            } else if (types.get(i - 1, j - 1) != MazeGenerator.TileType.WALL) { // northwest
                 return new TileType(4, 0);
-            } else if (types[i + 1][j + 1] != MazeGenerator.TileType.WALL) { // southeast
+            } else if (types.get(i + 1, j + 1) != MazeGenerator.TileType.WALL) { // southeast
                 return new TileType(4, 2);
             } else { // southwest
                 return new TileType(4, 3);
@@ -1,6 +1,7 @@
 package util;
 
 import java.util.Random;
+import java.util.stream.IntStream;
 
 /**
  * Uses Perlin noise to generate the heights of each tile in the maze grid.
@@ -8,13 +9,19 @@ import java.util.Random;
 public class ElevationGenerator {
 
     /**
-     * Return a 2D double array with given `width` and `height` representing the elevations of each
-     * tile, calculated using Perlin noise.
+     * The number of tiles above which the columns of a grid are generated in parallel.
      */
-    public static double[][] generateElevations(int width, int height, Random rand) {
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * Return a grid with given `width` and `height` representing the elevations of each tile,
+     * calculated using Perlin noise.  Large grids are generated on multiple threads (of the common
+     * fork-join pool), but the result depends only on `rand`.
+     */
+    public static ElevationGrid generateElevations(int width, int height, Random rand) {
         int spread = (width + height) / 6;  // how far apart the topographic features are
 
-        double[][] elevations = new double[width][height];
+        ElevationGrid elevations = new ElevationGrid(width, height);
 
         // build a courser grid of random gradients
         int gridWidth = width / spread + (width % spread == 0 ? 1 : 2);
@@ -27,43 +34,79 @@ public class ElevationGenerator {
             }
         }
 
-        // compute elevations using Perlin's procedure
+        // The offset of each column and row within its cell of the gradient grid
+        double[] xs = new double[width];
         for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                double x = (double) (2 * (i % spread) + 1) / (2 * spread);
-                double y = (double) (2 * (j % spread) + 1) / (2 * spread);
+            xs[i] = (double) (2 * (i % spread) + 1) / (2 * spread);
+        }
+        double[] ys = new double[height];
+        for (int j = 0; j < height; j++) {
+            ys[j] = (double) (2 * (j % spread) + 1) / (2 * spread);
+        }
+
+        // compute elevations using Perlin's procedure, recording each column's extremes
+        double[] values = elevations.values();
+        double[] columnMin = new double[width];
+        double[] columnMax = new double[width];
+        columns(width, height).forEach(i -> {
+            double x = xs[i];
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int j0 = 0; j0 < height; j0 += spread) {
+                // The gradients at the corners of this column's cell are the same for each of
+                //  the cell's rows
+                double[] nwv = vectors[i / spread][j0 / spread];
+                double[] nev = vectors[i / spread + 1][j0 / spread];
+                double[] swv = vectors[i / spread][j0 / spread + 1];
+                double[] sev = vectors[i / spread + 1][j0 / spread + 1];
+                int end = Math.min(j0 + spread, height);
+                for (int j = j0; j < end; j++) {
+                    double y = ys[j];
 
-                double nw = vectors[i / spread][j / spread][0] * x
-                        + vectors[i / spread][j / spread][1] * y;
-                double ne = vectors[i / spread + 1][j / spread][0] * (x - 1)
-                        + vectors[i / spread + 1][j / spread][1] * y;
-                double sw = vectors[i / spread][j / spread + 1][0] * x
-                        + vectors[i / spread][j / spread + 1][1] * (y - 1);
-                double se = vectors[i / spread + 1][j / spread + 1][0] * (x - 1)
-                        + vectors[i / spread + 1][j / spread + 1][1] * (y - 1);
+                    double nw = nwv[0] * x + nwv[1] * y;
+                    double ne = nev[0] * (x - 1) + nev[1] * y;
+                    double sw = swv[0] * x + swv[1] * (y - 1);
+                    double se = sev[0] * (x - 1) + sev[1] * (y - 1);
 
-                elevations[i][j] = (nw * (1 - x) + ne * x) * (1 - y) + (sw * (1 - x) + se * x) * y;
+                    double elevation = (nw * (1 - x) + ne * x) * (1 - y)
+                            + (sw * (1 - x) + se * x) * y;
+                    values[i * height + j] = elevation;
+                    max = Math.max(elevation, max);
+                    min = Math.min(elevation, min);
+                }
             }
-        }
+            columnMin[i] = min;
+            columnMax[i] = max;
+        });
 
         // linearly transform all elevations into [0,1]
-        double minElev = elevations[0][0];
-        double maxElev = elevations[0][0];
+        // Note: the extremes of a set do not depend on the order in which they are found
+        double minElev = values[0];
+        double maxElev = values[0];
         for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                maxElev = Math.max(elevations[i][j], maxElev);
-                minElev = Math.min(elevations[i][j], minElev);
-            }
+            maxElev = Math.max(columnMax[i], maxElev);
+            minElev = Math.min(columnMin[i], minElev);
         }
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                elevations[i][j] = (elevations[i][j] - minElev) / (maxElev - minElev);
+        double finalMinElev = minElev;
+        double range = maxElev - minElev;
+        columns(width, height).forEach(i -> {
+            for (int t = i * height; t < (i + 1) * height; t++) {
+                values[t] = (values[t] - finalMinElev) / range;
             }
-        }
+        });
 
         return elevations;
     }
 
+    /**
+     * Return the indices of the columns of a `width` x `height` grid, as a stream that is
+     * parallel if the grid is large enough to benefit.
+     */
+    private static IntStream columns(int width, int height) {
+        IntStream columns = IntStream.range(0, width);
+        return (long) width * height >= PARALLEL_THRESHOLD ? columns.parallel() : columns;
+    }
+
     /**
      * Return a random 2D unit vector
      */
@@ -0,0 +1,68 @@
+package util;
+
+/**
+ * A rectangular grid of tile elevations, stored in a single array.  Tiles are stored column by
+ * column (tile (`i`, `j`) is at index `i * height + j`), as in `TileGrid`.  Every elevation is
+ * initially 0.
+ */
+public final class ElevationGrid {
+
+    /**
+     * The number of columns and rows of this grid.
+     */
+    private final int width, height;
+
+    /**
+     * The elevation of each tile, in column-major order.
+     */
+    private final double[] values;
+
+    /**
+     * Create a `width` x `height` grid of zero elevations.
+     */
+    public ElevationGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        values = new double[width * height];
+    }
+
+    /**
+     * Return the number of columns of this grid.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Return the number of rows of this grid.
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Return the elevation of tile (`i`, `j`).  Requires `0 <= i < width()` and
+     * `0 <= j < height()`.
+     */
+    public double get(int i, int j) {
+        assert 0 <= i && i < width && 0 <= j && j < height;
+        return values[i * height + j];
+    }
+
+    /**
+     * Change the elevation of tile (`i`, `j`) to `elevation`.  Requires `0 <= i < width()` and
+     * `0 <= j < height()`.
+     */
+    public void set(int i, int j, double elevation) {
+        assert 0 <= i && i < width && 0 <= j && j < height;
+        values[i * height + j] = elevation;
+    }
+
+    /**
+     * Return the array backing this grid, which holds each tile's elevation in column-major
+     * order.
+     */
+    double[] values() {
+        return values;
+    }
+}
@@ -1,9 +1,24 @@
 package util;
 
 /**
- * Represents a map to be used by a game of PacMann.  A map is a rectangular 2D array of tiles
- * (whose types are specified by `types`), each with an elevation (given by `elevations`).
+ * Represents a map to be used by a game of PacMann.  A map is a rectangular grid of tiles (whose
+ * types are specified by `types`), each with an elevation (given by `elevations`).  Both grids
+ * have the same dimensions.
  */
-public record GameMap(MazeGenerator.TileType[][] types, double[][] elevations) {
+public record GameMap(TileGrid types, ElevationGrid elevations) {
 
+    /**
+     * Return a new random map for a maze with `width` path columns and `height` path rows (so
+     * `3*width+2 x 3*height+2` tiles), whose layout and elevations are determined by
+     * `randomness`.  Requires `width >= 4` and `height >= 3`.
+     */
+    public static GameMap generate(int width, int height, Randomness randomness) {
+        TileGrid types = new MazeGenerator(width, height,
+                randomness.generatorFor("MazeGenerator")).generateMaze();
+        int tilesAcross = 3 * width + 2;
+        int tilesHigh = 3 * height + 2;
+        ElevationGrid elevations = ElevationGenerator.generateElevations(tilesAcross, tilesHigh,
+                randomness.generatorFor("ElevationGenerator"));
+        return new GameMap(types, elevations);
+    }
 }
@@ -0,0 +1,256 @@
+package util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * A file of pre-generated `GameMap`s of one size, for a contiguous range of randomness seeds, so
+ * that games on repeated seeds need not regenerate their mazes.  The file is memory-mapped, so
+ * opening it reads nothing, and the map for a seed is decoded directly from the page cache.
+ * <p>
+ * The file starts with a header (see `HEADER_SIZE`), followed by one fixed-size record per seed,
+ * in seed order.  Each record is a `PackedMap`.  All values are little-endian.
+ * <p>
+ * Since a packed map's elevations are quantized, the maps in a corpus differ slightly from the
+ * ones that `GameMap.generate()` returns, so games played on them may differ from games played on
+ * generated maps.  For consistency, maps for seeds that are not in the corpus are generated and
+ * then quantized in the same way.
+ */
+public final class MazeCorpus {
+
+    /**
+     * Identifies a maze corpus file ("PMMC").
+     */
+    private static final int MAGIC = 0x434D4D50;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * The size of the header, which holds (in order) the magic number and version (ints), the
+     * width and height of the mazes in path columns and rows (ints), the first seed (a long), and
+     * the number of seeds (an int), padded to a multiple of 8 bytes [bytes].
+     */
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * The largest number of path columns or rows that a maze in a corpus may have, so that its
+     * number of tiles across or down (`3 * width + 2`) fits in an int.
+     */
+    private static final int MAX_DIMENSION = (Integer.MAX_VALUE - 2) / 3;
+
+    /**
+     * The number of path columns and rows of the mazes in this corpus.
+     */
+    private final int width, height;
+
+    /**
+     * The seeds of the maps in this corpus are `firstSeed` up to (but excluding)
+     * `firstSeed + count`.
+     */
+    private final long firstSeed;
+
+    /**
+     * The number of maps in this corpus.
+     */
+    private final int count;
+
+    /**
+     * The size of each map's record [bytes].
+     */
+    private final int recordSize;
+
+    /**
+     * The number of records in each of `segments` (except perhaps the last).
+     */
+    private final int recordsPerSegment;
+
+    /**
+     * The mapped regions of the file, which together hold all of the records.  A single region
+     * cannot exceed 2 GiB.
+     */
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Create a corpus backed by the records in `segments`, which are described by the remaining
+     * arguments.
+     */
+    private MazeCorpus(int width, int height, long firstSeed, int count, int recordsPerSegment,
+            MappedByteBuffer[] segments) {
+        this.width = width;
+        this.height = height;
+        this.firstSeed = firstSeed;
+        this.count = count;
+        recordSize = PackedMap.size(3 * width + 2, 3 * height + 2);
+        this.recordsPerSegment = recordsPerSegment;
+        this.segments = segments;
+    }
+
+    /**
+     * Return the number of path columns of the mazes in this corpus.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Return the number of path rows of the mazes in this corpus.
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Return whether this corpus contains the map for `randomness`.
+     */
+    public boolean contains(Randomness randomness) {
+        return randomness.seed() - firstSeed >= 0 && randomness.seed() - firstSeed < count;
+    }
+
+    /**
+     * Return the map of the `width()` x `height()` maze determined by `randomness`, with quantized
+     * elevations.  It is decoded from this corpus if it contains it, and otherwise generated.
+     * This may be called concurrently from multiple threads.
+     */
+    public GameMap map(Randomness randomness) {
+        PackedMap packed = packedMap(randomness);
+        return packed == null ? PackedMap.quantized(GameMap.generate(width, height, randomness))
+                : packed.toGameMap();
+    }
+
+    /**
+     * Return a view of the packed map determined by `randomness` in this corpus, without copying
+     * it, or null if this corpus does not contain it.  This may be called concurrently from
+     * multiple threads.
+     *
+     * @throws UncheckedIOException if the corpus's record for `randomness` is corrupt.
+     */
+    public PackedMap packedMap(Randomness randomness) {
+        if (!contains(randomness)) {
+            return null;
+        }
+        int k = (int) (randomness.seed() - firstSeed);
+        try {
+            return PackedMap.wrap(segments[k / recordsPerSegment],
+                    (k % recordsPerSegment) * recordSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt maze corpus record for seed "
+                    + randomness.seed(), e);
+        }
+    }
+
+    /**
+     * Open the corpus in `file`, mapping it into memory.
+     *
+     * @throws IOException if the file cannot be read or is not a maze corpus.
+     */
+    public static MazeCorpus open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Truncated maze corpus header: " + file);
+                }
+            }
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a maze corpus (or an unsupported version): " + file);
+            }
+            int width = header.getInt(8);
+            int height = header.getInt(12);
+            long firstSeed = header.getLong(16);
+            int count = header.getInt(24);
+
+            // Bounding the dimensions first keeps the numbers of tiles from overflowing
+            if (width <= 0 || height <= 0 || width > MAX_DIMENSION || height > MAX_DIMENSION
+                    || !PackedMap.fits(3 * width + 2, 3 * height + 2)) {
+                throw new IOException("Invalid maze corpus dimensions " + width + "x" + height
+                        + ": " + file);
+            }
+            if (count < 0) {
+                throw new IOException("Invalid maze corpus count " + count + ": " + file);
+            }
+            int recordSize = PackedMap.size(3 * width + 2, 3 * height + 2);
+            if (channel.size() < HEADER_SIZE + (long) count * recordSize) {
+                throw new IOException("Truncated maze corpus: " + file);
+            }
+            int recordsPerSegment = Math.max(1, Integer.MAX_VALUE / recordSize);
+            MappedByteBuffer[] segments = new MappedByteBuffer[count / recordsPerSegment
+                    + (count % recordsPerSegment == 0 ? 0 : 1)];
+            for (int s = 0; s < segments.length; s++) {
+                int numRecords = Math.min(recordsPerSegment, count - s * recordsPerSegment);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + (long) s * recordsPerSegment * recordSize,
+                        (long) numRecords * recordSize);
+            }
+            // The mappings remain valid after the channel is closed
+            return new MazeCorpus(width, height, firstSeed, count, recordsPerSegment, segments);
+        }
+    }
+
+    /**
+     * Generate the maps of the `width` x `height` mazes for the `count` seeds starting at
+     * `firstSeed`, using `numThreads` threads, and write them to a new corpus in `file` (replacing
+     * any existing file).
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path file, int width, int height, long firstSeed, int count,
+            int numThreads) throws IOException {
+        int recordSize = PackedMap.size(3 * width + 2, 3 * height + 2);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height)
+                    .putLong(firstSeed).putInt(count).flip();
+            writeFully(channel, header, 0);
+
+            // Records have fixed positions, so they may be generated and written in any order
+            ForkJoinPool pool = new ForkJoinPool(numThreads);
+            try {
+                pool.submit(() -> IntStream.range(0, count).parallel().forEach(k -> {
+                    Randomness randomness = new Randomness(firstSeed + k);
+                    ByteBuffer record = ByteBuffer.allocate(recordSize);
+                    PackedMap.encode(GameMap.generate(width, height, randomness),
+                            randomness.seed(), record, 0);
+                    try {
+                        writeFully(channel, record, HEADER_SIZE + (long) k * recordSize);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing maze corpus", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException u) {
+                    throw u.getCause();
+                }
+                throw new RuntimeException("Maze generation failed", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Write all of `buffer` to `channel`, starting at `position`.  May be called concurrently with
+     * writes to other positions.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -2,11 +2,8 @@ package util;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
-import java.util.Set;
 
 /**
  * Used to generate a "Pac-Man style" maze on which the game is played.
@@ -22,10 +19,118 @@ public class MazeGenerator {
     }
 
     /**
-     * Connected components of Cells model wall segments in our generator algorithm.
+     * Connected components of cells model wall segments in our generator algorithm.  They are
+     * tracked by a disjoint-set forest over cell ids `x * cellsHigh + y`, stored in primitive
+     * arrays.
+     * <p>
+     * Each component also tracks the size of the set of cells that the original (hash set based)
+     * implementation of this algorithm associated with it, since that determines which merges are
+     * allowed.  A merge across the center of an odd-width board "doubles" a component by adding
+     * mirror images (-x, y) of its cells, which stay in the component afterwards; the mirror image
+     * of a cell in column 0 is that cell itself, and mirror images of mirror images are already
+     * present.  So the size of a component is its number of real cells, plus its number of real
+     * cells in columns x > 0 once it has been doubled, plus the sizes contributed by the
+     * components merged into it.
      */
-    private record Cell(int x, int y) {
+    private static final class CellComponents {
+
+        /**
+         * The number of cell rows.
+         */
+        final int cellsHigh;
+
+        /**
+         * The parent of each cell in the disjoint-set forest (a root is its own parent).
+         */
+        final int[] parent;
+
+        /**
+         * The size of the component rooted at each root cell, counting mirror images.
+         */
+        final int[] size;
+
+        /**
+         * The number of real cells in the component rooted at each root cell.
+         */
+        final int[] realCells;
+
+        /**
+         * The number of real cells in columns x > 0 in the component rooted at each root cell.
+         */
+        final int[] offAxisCells;
+
+        /**
+         * Create `w * h` singleton components, one for each cell (x, y) with `0 <= x < w` and
+         * `0 <= y < h`.
+         */
+        CellComponents(int w, int h) {
+            cellsHigh = h;
+            parent = new int[w * h];
+            size = new int[w * h];
+            realCells = new int[w * h];
+            offAxisCells = new int[w * h];
+            for (int c = 0; c < w * h; c++) {
+                parent[c] = c;
+                size[c] = 1;
+                realCells[c] = 1;
+                offAxisCells[c] = c >= h ? 1 : 0;
+            }
+        }
+
+        /**
+         * Return the root of the component containing cell (x, y).
+         */
+        int find(int x, int y) {
+            int c = x * cellsHigh + y;
+            while (parent[c] != c) {
+                // Path halving
+                parent[c] = parent[parent[c]];
+                c = parent[c];
+            }
+            return c;
+        }
+
+        /**
+         * Return the size of the component that would result from merging the components rooted
+         * at `a` and `b` (which may be equal).
+         */
+        int mergedSize(int a, int b) {
+            return a == b ? size[a] : size[a] + size[b];
+        }
+
+        /**
+         * Merge the components rooted at `a` and `b` (which may be equal).
+         */
+        void union(int a, int b) {
+            if (a == b) {
+                return;
+            }
+            // Union by size
+            if (realCells[a] < realCells[b]) {
+                int tmp = a;
+                a = b;
+                b = tmp;
+            }
+            parent[b] = a;
+            size[a] += size[b];
+            realCells[a] += realCells[b];
+            offAxisCells[a] += offAxisCells[b];
+        }
+
+        /**
+         * Return the size of the component rooted at `a` once it has been doubled by adding the
+         * mirror images of its cells.
+         */
+        int doubledSize(int a) {
+            return realCells[a] + offAxisCells[a];
+        }
 
+        /**
+         * Double the component rooted at `a` by adding the mirror images of its cells.
+         */
+        void doubleUp(int a) {
+            size[a] = doubledSize(a);
+        }
     }
 
     /**
@@ -63,18 +168,17 @@ public class MazeGenerator {
     }
 
     /**
-     * Returns a randomly generated maze, which a 2D array of dimension `3*width+2` by `3*height+2`
+     * Returns a randomly generated maze, which a grid of dimension `3*width+2` by `3*height+2`
      * of either wall or path tiles. Guarantees that all path tiles (except for the ghost's starting
      * box) will be connected. Requires `width >= 4` and `height >= 3`.
      */
-    public TileType[][] generateMaze() {
+    public TileGrid generateMaze() {
         /* This algorithm is inspired by https://shaunlebron.github.io/pacman-mazegen/ */
 
-        TileType[][] tiles = new TileType[3 * width + 2][3 * height + 2];
+        TileGrid tiles = new TileGrid(3 * width + 2, 3 * height + 2);
         fillKnownTileTypes(tiles);
 
-        HashMap<Cell, HashSet<Cell>> components = initializeCellComponents(width / 2,
-                height - 1);
+        CellComponents components = new CellComponents(width / 2, height - 1);
 
         boolean[][] horizontalEdges = new boolean[width / 2][height];
         for (boolean[] row : horizontalEdges) {
@@ -99,74 +203,59 @@ public class MazeGenerator {
     /**
      * Fill in the types of tiles that are not randomly generated.
      */
-    private void fillKnownTileTypes(TileType[][] tiles) {
-        int w = tiles.length;
-        int h = tiles[0].length;
+    private void fillKnownTileTypes(TileGrid tiles) {
+        int w = tiles.width();
+        int h = tiles.height();
 
         // most borders should be walls
         for (int i = 0; i < w; i++) {
-            tiles[i][0] = TileType.WALL;
-            tiles[i][1] = TileType.WALL;
-            tiles[i][h - 2] = TileType.WALL;
-            tiles[i][h - 1] = TileType.WALL;
+            tiles.set(i, 0, TileType.WALL);
+            tiles.set(i, 1, TileType.WALL);
+            tiles.set(i, h - 2, TileType.WALL);
+            tiles.set(i, h - 1, TileType.WALL);
         }
         for (int j = 2; j < h - 2; j++) {
-            tiles[0][j] = TileType.WALL;
-            tiles[1][j] = TileType.WALL;
-            tiles[w - 2][j] = TileType.WALL;
-            tiles[w - 1][j] = TileType.WALL;
+            tiles.set(0, j, TileType.WALL);
+            tiles.set(1, j, TileType.WALL);
+            tiles.set(w - 2, j, TileType.WALL);
+            tiles.set(w - 1, j, TileType.WALL);
         }
 
         // add tunnels at borders
         int firstHorizontalTunnel = (((h / 3 + 2) % 5) / 2 + 1) * 3 + 2;
         for (int j = firstHorizontalTunnel; j < h; j += 15) {
-            tiles[0][j] = TileType.PATH;
-            tiles[1][j] = TileType.PATH;
-            tiles[w - 2][j] = TileType.PATH;
-            tiles[w - 1][j] = TileType.PATH;
+            tiles.set(0, j, TileType.PATH);
+            tiles.set(1, j, TileType.PATH);
+            tiles.set(w - 2, j, TileType.PATH);
+            tiles.set(w - 1, j, TileType.PATH);
         }
 
         int firstVerticalTunnel = (((w / 3 + 2) % 5) / 2 + 1) * 3 + 2;
         for (int i = firstVerticalTunnel; i < w; i += 15) {
-            tiles[i][0] = TileType.PATH;
-            tiles[i][1] = TileType.PATH;
-            tiles[i][h - 2] = TileType.PATH;
-            tiles[i][h - 1] = TileType.PATH;
+            tiles.set(i, 0, TileType.PATH);
+            tiles.set(i, 1, TileType.PATH);
+            tiles.set(i, h - 2, TileType.PATH);
+            tiles.set(i, h - 1, TileType.PATH);
         }
 
         // guaranteed path tiles
         for (int i = 0; i < w / 3; i++) {
             for (int j = 0; j < h / 3; j++) {
-                tiles[3 * i + 2][3 * j + 2] = TileType.PATH;
+                tiles.set(3 * i + 2, 3 * j + 2, TileType.PATH);
             }
         }
 
         // guaranteed interior walls
         for (int i = 1; i < w / 3; i++) {
             for (int j = 1; j < h / 3; j++) {
-                tiles[3 * i][3 * j] = TileType.WALL;
-                tiles[3 * i + 1][3 * j] = TileType.WALL;
-                tiles[3 * i][3 * j + 1] = TileType.WALL;
-                tiles[3 * i + 1][3 * j + 1] = TileType.WALL;
+                tiles.set(3 * i, 3 * j, TileType.WALL);
+                tiles.set(3 * i + 1, 3 * j, TileType.WALL);
+                tiles.set(3 * i, 3 * j + 1, TileType.WALL);
+                tiles.set(3 * i + 1, 3 * j + 1, TileType.WALL);
             }
         }
     }
 
-    /**
-     * Return a hashmap associating each cell with its connected component. Initially, a cells
-     * connected component is the singleton set containing that cell.
-     */
-    private HashMap<Cell, HashSet<Cell>> initializeCellComponents(int w, int h) {
-        HashMap<Cell, HashSet<Cell>> components = new HashMap<>();
-        for (int i = 0; i < w; i++) {
-            for (int j = 0; j < h; j++) {
-                Cell c = new Cell(i, j);
-                components.put(c, new HashSet<>(Set.of(c)));
-            }
-        }
-        return components;
-    }
-
     /**
      * Initialize the edges that must be present/absent in the graph. Return a list of the edges
      * that can be randomly determined.
@@ -236,14 +325,13 @@ public class MazeGenerator {
      * create a dead-end in the maze.
      */
     private void randomlyAssignEdges(boolean[][] horizontalEdges, boolean[][] verticalEdges,
-            List<CellBoundary> assignableCellBoundaries, HashMap<Cell, HashSet<Cell>> components) {
+            List<CellBoundary> assignableCellBoundaries, CellComponents components) {
         shuffle(assignableCellBoundaries, rng);
 
         for (CellBoundary e : assignableCellBoundaries) {
             if (e.orientation == Orientation.HORIZONTAL) {
-                HashSet<Cell> mergedComponent = new HashSet<>(
-                        components.get(new Cell(e.x, e.y - 1)));
-                mergedComponent.addAll(components.get(new Cell(e.x, e.y)));
+                int above = components.find(e.x, e.y - 1);
+                int below = components.find(e.x, e.y);
 
                 int numTouchingLeftEndpoint = 1;
                 numTouchingLeftEndpoint += verticalEdges[e.x][e.y] ? 1 : 0;
@@ -260,25 +348,19 @@ public class MazeGenerator {
                             (e.x < (width - 2) / 2 && horizontalEdges[e.x + 1][e.y]) ? 1 : 0;
                 }
 
-                if (mergedComponent.size() <= 4 && numTouchingLeftEndpoint > 2 &&
+                if (components.mergedSize(above, below) <= 4 && numTouchingLeftEndpoint > 2 &&
                         numTouchingRightEndpoint > 2) {
                     horizontalEdges[e.x][e.y] = false;
-                    for (Cell c : mergedComponent) {
-                        components.put(c, mergedComponent);
-                    }
+                    components.union(above, below);
                 }
             } else {
-                HashSet<Cell> mergedComponent = new HashSet<>(
-                        components.get(new Cell(e.x - 1, e.y)));
-                if (width % 2 == 1 && e.x == (width - 1) / 2) {
-                    // special case for center of odd width boards
-                    // double their merge component size by adding dummy cells
-                    for (Cell c : components.get(new Cell(e.x - 1, e.y))) {
-                        mergedComponent.add(new Cell(-c.x(), c.y()));
-                    }
-                } else {
-                    mergedComponent.addAll(components.get(new Cell(e.x, e.y)));
-                }
+                boolean center = width % 2 == 1 && e.x == (width - 1) / 2;
+                int left = components.find(e.x - 1, e.y);
+                int right = center ? left : components.find(e.x, e.y);
+                // special case for center of odd width boards
+                // double their merge component size by adding dummy cells
+                int mergedSize = center ? components.doubledSize(left)
+                        : components.mergedSize(left, right);
 
                 int numTouchingTopEndpoint = 1;
                 if (width % 2 == 1 && e.x == (width - 1) / 2) {
@@ -300,11 +382,13 @@ public class MazeGenerator {
                 numTouchingBottomEndpoint +=
                         (e.y < height - 2 && verticalEdges[e.x][e.y + 1]) ? 1 : 0;
 
-                if (mergedComponent.size() <= 4 && numTouchingTopEndpoint > 2 &&
+                if (mergedSize <= 4 && numTouchingTopEndpoint > 2 &&
                         numTouchingBottomEndpoint > 2) {
                     verticalEdges[e.x][e.y] = false;
-                    for (Cell c : mergedComponent) {
-                        components.put(c, mergedComponent);
+                    if (center) {
+                        components.doubleUp(left);
+                    } else {
+                        components.union(left, right);
                     }
                 }
             }
@@ -314,7 +398,7 @@ public class MazeGenerator {
     /**
      * Use the horizontal and vertical edge assignments to determine the remaining tile types.
      */
-    private void fillAssignedTileTypes(TileType[][] tiles, boolean[][] horizontalEdges,
+    private void fillAssignedTileTypes(TileGrid tiles, boolean[][] horizontalEdges,
             boolean[][] verticalEdges) {
 
         int hw = horizontalEdges.length; // width of horizontal array
@@ -324,22 +408,20 @@ public class MazeGenerator {
 
         for (int i = 0; i < hw; i++) {
             for (int j = 0; j < hh; j++) {
-                tiles[3 * i + 3][3 * j + 2] = horizontalEdges[i][j] ? TileType.PATH : TileType.WALL;
-                tiles[3 * i + 4][3 * j + 2] = horizontalEdges[i][j] ? TileType.PATH : TileType.WALL;
-                tiles[3 * (width - i) - 2][3 * j + 2] =
-                        horizontalEdges[i][j] ? TileType.PATH : TileType.WALL;
-                tiles[3 * (width - i) - 3][3 * j + 2] =
-                        horizontalEdges[i][j] ? TileType.PATH : TileType.WALL;
+                TileType type = horizontalEdges[i][j] ? TileType.PATH : TileType.WALL;
+                tiles.set(3 * i + 3, 3 * j + 2, type);
+                tiles.set(3 * i + 4, 3 * j + 2, type);
+                tiles.set(3 * (width - i) - 2, 3 * j + 2, type);
+                tiles.set(3 * (width - i) - 3, 3 * j + 2, type);
             }
         }
         for (int i = 0; i < vw; i++) {
             for (int j = 0; j < vh; j++) {
-                tiles[3 * i + 2][3 * j + 3] = verticalEdges[i][j] ? TileType.PATH : TileType.WALL;
-                tiles[3 * i + 2][3 * j + 4] = verticalEdges[i][j] ? TileType.PATH : TileType.WALL;
-                tiles[3 * (width - i) - 1][3 * j + 3] =
-                        verticalEdges[i][j] ? TileType.PATH : TileType.WALL;
-                tiles[3 * (width - i) - 1][3 * j + 4] =
-                        verticalEdges[i][j] ? TileType.PATH : TileType.WALL;
+                TileType type = verticalEdges[i][j] ? TileType.PATH : TileType.WALL;
+                tiles.set(3 * i + 2, 3 * j + 3, type);
+                tiles.set(3 * i + 2, 3 * j + 4, type);
+                tiles.set(3 * (width - i) - 1, 3 * j + 3, type);
+                tiles.set(3 * (width - i) - 1, 3 * j + 4, type);
             }
         }
     }
@@ -347,11 +429,11 @@ public class MazeGenerator {
     /**
      * Reassign the types of tiles within the ghost box.
      */
-    private void fixGhostBox(TileType[][] tiles) {
+    private void fixGhostBox(TileGrid tiles) {
         int i = 3 * (width / 2) - 1;
         int j = 3 * ((height - 1) / 2) + 2;
         for (int di = 0; di < 4 + 3 * (width % 2); di++) {
-            tiles[i + di][j] = TileType.GHOSTBOX;
+            tiles.set(i + di, j, TileType.GHOSTBOX);
         }
     }
 
@@ -0,0 +1,265 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import util.MazeGenerator.TileType;
+
+/**
+ * A `GameMap` in a compact binary format, read in place from a buffer (e.g., a memory-mapped
+ * file) rather than copied onto the heap.  A packed map takes 2.25 bytes per tile, rather than
+ * the 9 bytes per tile of a `GameMap`, and opening one reads only its header, so many may be
+ * kept resident at once; `toGameMap()` decodes one for play.
+ * <p>
+ * The format is a header (see `HEADER_SIZE`), followed by the type of each tile in 2 bits (4
+ * tiles per byte, lowest bits first), followed by the elevation of each tile quantized to an
+ * unsigned 16-bit integer.  Tiles are in the same order as in a `GameMap`'s grids (`i` major).
+ * All values are little-endian.
+ * <p>
+ * Since elevations are quantized, a packed map differs slightly from the map it was encoded
+ * from (by less than 8e-6 in each elevation); `quantized()` applies the same rounding to a map.
+ */
+public final class PackedMap {
+
+    /**
+     * Identifies a packed map ("PMAP").
+     */
+    private static final int MAGIC = 0x50414D50;
+
+    /**
+     * The version of the format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The size of the header, which holds (in order) the magic number and version, the number of
+     * tiles across and down the map (all ints), and the seed of the randomness that the map was
+     * generated from (a long) [bytes].
+     */
+    private static final int HEADER_SIZE = 24;
+
+    /**
+     * The largest elevation quantum, to which an elevation of 1 is mapped.
+     */
+    private static final int MAX_QUANTUM = 0xFFFF;
+
+    /**
+     * The tile types, indexed by their 2-bit codes.
+     */
+    private static final TileType[] TYPES = TileType.values();
+
+    /**
+     * The buffer holding this map, starting at index 0.  Only absolute accesses are made, so it
+     * may be read by several threads.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The number of tiles across and down this map.
+     */
+    private final int tilesAcross, tilesHigh;
+
+    /**
+     * The index in `buffer` of the first tile's elevation.
+     */
+    private final int elevationStart;
+
+    /**
+     * Create a view of the packed map at the start of `buffer`, whose header has been validated.
+     */
+    private PackedMap(ByteBuffer buffer) {
+        this.buffer = buffer;
+        tilesAcross = buffer.getInt(8);
+        tilesHigh = buffer.getInt(12);
+        elevationStart = HEADER_SIZE + (tilesAcross * tilesHigh + 3) / 4;
+    }
+
+    /**
+     * Return the number of tiles across this map (the width of a `GameMap`'s grids).
+     */
+    public int tilesAcross() {
+        return tilesAcross;
+    }
+
+    /**
+     * Return the number of tiles down this map (the height of a `GameMap`'s grids).
+     */
+    public int tilesHigh() {
+        return tilesHigh;
+    }
+
+    /**
+     * Return the seed of the randomness that this map was generated from.
+     */
+    public long seed() {
+        return buffer.getLong(16);
+    }
+
+    /**
+     * Return the type of tile (`i`, `j`).
+     */
+    public TileType type(int i, int j) {
+        int t = i * tilesHigh + j;
+        return TYPES[(buffer.get(HEADER_SIZE + t / 4) >>> (2 * (t % 4))) & 3];
+    }
+
+    /**
+     * Return the (quantized) elevation of tile (`i`, `j`).
+     */
+    public double elevation(int i, int j) {
+        return dequantize(buffer.getShort(elevationStart + 2 * (i * tilesHigh + j)));
+    }
+
+    /**
+     * Return a new `GameMap` holding the tile types and (quantized) elevations of this map.
+     */
+    public GameMap toGameMap() {
+        TileGrid types = new TileGrid(tilesAcross, tilesHigh);
+        ElevationGrid elevations = new ElevationGrid(tilesAcross, tilesHigh);
+        // Both grids store tiles in the same order as this map
+        byte[] codes = types.codes();
+        double[] values = elevations.values();
+        for (int t = 0; t < codes.length; t++) {
+            codes[t] = (byte) ((buffer.get(HEADER_SIZE + t / 4) >>> (2 * (t % 4))) & 3);
+            values[t] = dequantize(buffer.getShort(elevationStart + 2 * t));
+        }
+        return new GameMap(types, elevations);
+    }
+
+    /**
+     * Return a view of the packed map at index `offset` of `buffer`, which must not be modified
+     * afterwards.  Only the header is read.
+     *
+     * @throws IOException if there is no valid packed map there.
+     */
+    public static PackedMap wrap(ByteBuffer buffer, int offset) throws IOException {
+        if (buffer.limit() - offset < HEADER_SIZE) {
+            throw new IOException("Truncated packed map header");
+        }
+        ByteBuffer view = buffer.slice(offset, buffer.limit() - offset)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        if (view.getInt(0) != MAGIC || view.getInt(4) != VERSION) {
+            throw new IOException("Not a packed map (or an unsupported version)");
+        }
+        int tilesAcross = view.getInt(8);
+        int tilesHigh = view.getInt(12);
+        if (!fits(tilesAcross, tilesHigh)) {
+            throw new IOException("Invalid packed map dimensions " + tilesAcross + "x"
+                    + tilesHigh);
+        }
+        if (view.capacity() < size(tilesAcross, tilesHigh)) {
+            throw new IOException("Truncated packed map");
+        }
+        return new PackedMap(view.slice(0, size(tilesAcross, tilesHigh))
+                .order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    /**
+     * Map the packed map in `file` into memory and return a view of it.
+     *
+     * @throws IOException if the file cannot be read or does not hold a packed map.
+     */
+    public static PackedMap open(Path file) throws IOException {
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping remains valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            return wrap(mapped, 0);
+        } catch (IOException e) {
+            throw new IOException(e.getMessage() + ": " + file, e);
+        }
+    }
+
+    /**
+     * Write `map`, generated from the randomness with seed `seed`, to `file` (replacing any
+     * existing file) in packed form.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(GameMap map, long seed, Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size(map.types().width(), map.types().height()));
+        encode(map, seed, buffer, 0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Write `map`, generated from the randomness with seed `seed`, in packed form to `buffer`
+     * starting at index `offset`, which must be followed by at least `size()` bytes (all zero).
+     * The buffer's position is not changed.
+     */
+    static void encode(GameMap map, long seed, ByteBuffer buffer, int offset) {
+        int tilesAcross = map.types().width();
+        int tilesHigh = map.types().height();
+        byte[] codes = map.types().codes();
+        double[] values = map.elevations().values();
+        ByteBuffer view = buffer.slice(offset, size(tilesAcross, tilesHigh))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        view.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, tilesAcross).putInt(12, tilesHigh)
+                .putLong(16, seed);
+        int elevationStart = HEADER_SIZE + (tilesAcross * tilesHigh + 3) / 4;
+        for (int t = 0; t < codes.length; t++) {
+            int code = codes[t] << (2 * (t % 4));
+            view.put(HEADER_SIZE + t / 4, (byte) (view.get(HEADER_SIZE + t / 4) | code));
+            view.putShort(elevationStart + 2 * t, quantize(values[t]));
+        }
+    }
+
+    /**
+     * Return whether `tilesAcross` and `tilesHigh` are positive and a packed map with
+     * `tilesAcross` x `tilesHigh` tiles is small enough to be held in a buffer.
+     */
+    public static boolean fits(int tilesAcross, int tilesHigh) {
+        // The product of two ints cannot overflow a long, and bounding it first keeps the size
+        //  from overflowing too
+        long numTiles = (long) tilesAcross * tilesHigh;
+        return tilesAcross > 0 && tilesHigh > 0 && numTiles <= Integer.MAX_VALUE
+                && HEADER_SIZE + (numTiles + 3) / 4 + 2 * numTiles <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Return the size of a packed map with `tilesAcross` x `tilesHigh` tiles [bytes].  Requires
+     * `fits(tilesAcross, tilesHigh)`.
+     */
+    public static int size(int tilesAcross, int tilesHigh) {
+        assert fits(tilesAcross, tilesHigh);
+        int numTiles = tilesAcross * tilesHigh;
+        return HEADER_SIZE + (numTiles + 3) / 4 + 2 * numTiles;
+    }
+
+    /**
+     * Return a copy of `map` whose elevations have been quantized as they are in a packed map.
+     */
+    public static GameMap quantized(GameMap map) {
+        double[] values = map.elevations().values();
+        ElevationGrid elevations = new ElevationGrid(map.elevations().width(),
+                map.elevations().height());
+        for (int t = 0; t < values.length; t++) {
+            elevations.values()[t] = dequantize(quantize(values[t]));
+        }
+        return new GameMap(map.types(), elevations);
+    }
+
+    /**
+     * Return the quantum nearest to `elevation`, which must be in [0..1], as an unsigned short.
+     */
+    private static short quantize(double elevation) {
+        return (short) Math.round(Math.clamp(elevation, 0.0, 1.0) * MAX_QUANTUM);
+    }
+
+    /**
+     * Return the elevation represented by the unsigned short `quantum`.
+     */
+    private static double dequantize(short quantum) {
+        return (double) Short.toUnsignedInt(quantum) / MAX_QUANTUM;
+    }
+}
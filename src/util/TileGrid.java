@@ -0,0 +1,75 @@
+package util;
+
+import util.MazeGenerator.TileType;
+
+/**
+ * A rectangular grid of tile types, stored as one byte per tile in a single array.  Tiles are
+ * stored column by column (tile (`i`, `j`) is at index `i * height + j`), so the tiles of a column
+ * are adjacent, as they were in the nested `[i][j]` arrays that this replaces.  Every tile is
+ * initially a WALL.
+ */
+public final class TileGrid {
+
+    /**
+     * The tile types, indexed by their codes (ordinals).
+     */
+    private static final TileType[] TYPES = TileType.values();
+
+    /**
+     * The number of columns and rows of this grid.
+     */
+    private final int width, height;
+
+    /**
+     * The code of the type of each tile, in column-major order.
+     */
+    private final byte[] codes;
+
+    /**
+     * Create a `width` x `height` grid of WALL tiles.
+     */
+    public TileGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        codes = new byte[width * height];
+    }
+
+    /**
+     * Return the number of columns of this grid.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Return the number of rows of this grid.
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Return the type of tile (`i`, `j`).  Requires `0 <= i < width()` and `0 <= j < height()`.
+     */
+    public TileType get(int i, int j) {
+        assert 0 <= i && i < width && 0 <= j && j < height;
+        return TYPES[codes[i * height + j]];
+    }
+
+    /**
+     * Change the type of tile (`i`, `j`) to `type`.  Requires `0 <= i < width()` and
+     * `0 <= j < height()`.
+     */
+    public void set(int i, int j, TileType type) {
+        assert 0 <= i && i < width && 0 <= j && j < height;
+        codes[i * height + j] = (byte) type.ordinal();
+    }
+
+    /**
+     * Return the array backing this grid, which holds the ordinal of each tile's type in
+     * column-major order.
+     */
+    byte[] codes() {
+        return codes;
+    }
+}
@@ -0,0 +1,98 @@
+package util;
+
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * Checks that `MazeGenerator` produces the same mazes as it did before its wall components were
+ * tracked by a disjoint-set forest.  That forest reproduces the component sizes of the original
+ * hash set implementation, including the mirror images added on odd-width boards (see
+ * `CellComponents`), and any mistake there changes which walls are merged.  The golden mazes were
+ * generated by the original implementation; they cover the smallest board, odd and even widths,
+ * and non-square boards.  Width-5 boards have only two columns of cells, so most of their
+ * components reach column 0, whose cells are their own mirror images; those cases check that such
+ * cells are not counted twice.
+ * <p>
+ * The project has no test runner, so this is a plain program.  It reports each maze that differs
+ * from its golden maze, and exits with status 1 if there is one.
+ * <p>
+ * Usage: java util.MazeGeneratorGoldenTest [print]  ("print" lists the current fingerprints in
+ * the format of `GOLDEN`, for updating them after an intended change to the generator)
+ */
+public class MazeGeneratorGoldenTest {
+
+    /**
+     * The golden mazes, as {width, height, seed, fingerprint}.  Each maze is generated by a
+     * `MazeGenerator` of that size driven by `new Random(seed)`.
+     */
+    private static final long[][] GOLDEN = {
+            {4, 3, 1, 0xd39f7843L},
+            {5, 6, 1, 0x73caa542L},
+            {5, 13, 2, 0x4c8e46b5L},
+            {5, 20, 1, 0x4f55d067L},
+            {7, 4, 1, 0x5497c333L},
+            {7, 4, 42, 0xb67f9a86L},
+            {7, 4, 2110, 0x698610e5L},
+            {9, 6, 1, 0xf4c13a85L},
+            {9, 6, 42, 0xee50f268L},
+            {9, 6, 2110, 0xa073a620L},
+            {10, 10, 1, 0xa5ea9c18L},
+            {10, 10, 42, 0xf2315ffaL},
+            {10, 10, 2110, 0x4d021a03L},
+            {11, 9, 1, 0xd6bf9a2bL},
+            {11, 9, 42, 0xe37fa991L},
+            {11, 9, 2110, 0xa56a2e42L},
+            {15, 15, 1, 0xd3567df5L},
+            {15, 15, 42, 0xea7affecL},
+            {15, 15, 2110, 0x54ba880aL},
+            {21, 13, 1, 0x675ec05bL},
+            {21, 13, 42, 0xf67c414dL},
+            {21, 13, 2110, 0x1105472aL},
+            {30, 30, 1, 0x07d872ecL},
+            {30, 30, 42, 0x4f85347eL},
+            {30, 30, 2110, 0xb24e7eaeL},
+            {31, 17, 1, 0xa46389fbL},
+            {31, 17, 42, 0x81efddeeL},
+            {31, 17, 2110, 0xcb5f36ecL}
+    };
+
+    public static void main(String[] args) {
+        boolean print = args.length > 0 && args[0].equals("print");
+        int numFailures = 0;
+        for (long[] golden : GOLDEN) {
+            int width = (int) golden[0];
+            int height = (int) golden[1];
+            long seed = golden[2];
+            long actual = fingerprint(new MazeGenerator(width, height, new Random(seed))
+                    .generateMaze());
+            if (print) {
+                System.out.printf("            {%d, %d, %d, 0x%08xL},%n", width, height, seed,
+                        actual);
+            } else if (actual != golden[3]) {
+                System.out.printf("FAIL %dx%d seed %d: fingerprint %08x, expected %08x%n", width,
+                        height, seed, actual, golden[3]);
+                numFailures += 1;
+            }
+        }
+        if (!print) {
+            System.out.printf("%d / %d mazes match%n", GOLDEN.length - numFailures,
+                    GOLDEN.length);
+            if (numFailures > 0) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Return the CRC-32 of the ordinals of the types of the tiles in `tiles`, in i-major order.
+     */
+    private static long fingerprint(TileGrid tiles) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < tiles.width(); i++) {
+            for (int j = 0; j < tiles.height(); j++) {
+                crc.update(tiles.get(i, j).ordinal());
+            }
+        }
+        return crc.getValue();
+    }
+}